@@ -0,0 +1,128 @@
+package benchmark;
+
+import chess.*;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import shared.ChessAdapters;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the ChessGame calls a move request goes through. Run with
+ * {@code -prof gc} to see allocation per operation alongside ops/sec.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class GameBenchmark {
+    @Param({"start", "middlegame"})
+    private String position;
+
+    private ChessGame game;
+    private ChessGame shuffleGame;
+    private ChessMove[] shuffle;
+    private Gson adapterGson;
+    private Gson reflectiveGson;
+    private String adapterJson;
+    private String reflectiveJson;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() {
+        game = Positions.named(position);
+        shuffleGame = Positions.named(position);
+        String[] moves = position.equals("start")
+                ? new String[]{"g1f3", "g8f6", "f3g1", "f6g8"}
+                : new String[]{"d1e2", "d8e7", "e2d1", "e7d8"};
+        shuffle = new ChessMove[moves.length];
+        for (int i = 0; i < moves.length; i++) {
+            shuffle[i] = Positions.parse(moves[i]);
+        }
+        adapterGson = new GsonBuilder()
+                .registerTypeAdapter(ChessGame.class, new ChessAdapters.ChessGameAdapter())
+                .registerTypeAdapter(ChessBoard.class, new ChessAdapters.ChessBoardAdapter())
+                .registerTypeAdapter(ChessPiece.class, new ChessAdapters.ChessPieceAdapter())
+                .registerTypeAdapter(ChessPosition.class, new ChessAdapters.ChessPositionAdapter())
+                .registerTypeAdapter(ChessMove.class, new ChessAdapters.ChessMoveAdapter())
+                .create();
+        reflectiveGson = new Gson();
+        adapterJson = adapterGson.toJson(game);
+        reflectiveJson = reflectiveGson.toJson(game);
+        encoded = ChessGameCodec.encode(game);
+    }
+
+    @Benchmark
+    public void validMoves(Blackhole blackhole) {
+        long pieces = game.getBoard().getOccupancy(game.getTeamTurn());
+        while (pieces != 0) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            blackhole.consume(game.validMoves(ChessPosition.of(square)));
+        }
+    }
+
+    @Benchmark
+    public boolean isInCheckmate() {
+        return game.isInCheckmate(game.getTeamTurn());
+    }
+
+    /**
+     * Four makeMove calls that shuffle pieces out and back, with the repetition
+     * history and halfmove clock cleared so the shuffle never ends the game.
+     */
+    @Benchmark
+    @OperationsPerInvocation(4)
+    public ChessGame makeMove() throws InvalidMoveException {
+        for (ChessMove move : shuffle) {
+            shuffleGame.makeMove(move);
+        }
+        shuffleGame.setPositionHistory(new long[0]);
+        shuffleGame.setHalfmoveClock(0);
+        return shuffleGame;
+    }
+
+    @Benchmark
+    public ChessGame adapterJsonRoundTrip() {
+        return adapterGson.fromJson(adapterGson.toJson(game), ChessGame.class);
+    }
+
+    @Benchmark
+    public String adapterJsonWrite() {
+        return adapterGson.toJson(game);
+    }
+
+    @Benchmark
+    public ChessGame adapterJsonRead() {
+        return adapterGson.fromJson(adapterJson, ChessGame.class);
+    }
+
+    @Benchmark
+    public ChessGame reflectiveJsonRoundTrip() {
+        return reflectiveGson.fromJson(reflectiveGson.toJson(game), ChessGame.class);
+    }
+
+    @Benchmark
+    public ChessGame reflectiveJsonRead() {
+        return reflectiveGson.fromJson(reflectiveJson, ChessGame.class);
+    }
+
+    @Benchmark
+    public ChessGame binaryRoundTrip() {
+        return ChessGameCodec.decode(ChessGameCodec.encode(game));
+    }
+
+    @Benchmark
+    public byte[] binaryWrite() {
+        return ChessGameCodec.encode(game);
+    }
+
+    @Benchmark
+    public ChessGame binaryRead() {
+        return ChessGameCodec.decode(encoded);
+    }
+}
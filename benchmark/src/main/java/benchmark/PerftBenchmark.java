@@ -0,0 +1,60 @@
+package benchmark;
+
+import chess.ChessGame;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full legal move tree walks from the standard perft positions, single-threaded and
+ * split across threads for a scaling comparison. Scores are trees per second;
+ * multiply by the node count in {@link #NODES} for nodes per second. Setup checks
+ * the count first, so a move generator bug fails the run instead of timing it.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 10)
+public class PerftBenchmark {
+    // Published leaf counts for depths 1 to 6
+    private static final Map<String, long[]> NODES = Map.of(
+            "start", new long[]{20, 400, 8902, 197281, 4865609, 119060324},
+            "kiwipete", new long[]{48, 2039, 97862, 4085603, 193690690, 8031647685L},
+            "endgame", new long[]{14, 191, 2812, 43238, 674624, 11030083},
+            "castling", new long[]{6, 264, 9467, 422333, 15833292, 706045033},
+            "promotion", new long[]{44, 1486, 62379, 2103487, 89941194, 3048196529L});
+
+    @Param({"start", "kiwipete", "endgame", "castling", "promotion"})
+    private String position;
+
+    @Param({"5"})
+    private int depth;
+
+    // 1 walks the tree on the benchmark thread; more splits the root moves across a ForkJoinPool
+    @Param({"1", "4"})
+    private int threads;
+
+    private ChessGame game;
+
+    @Setup
+    public void setUp() {
+        long[] nodes = NODES.get(position);
+        if (nodes == null || depth < 1 || depth > nodes.length) {
+            throw new IllegalArgumentException("No known node count for " + position + " at depth " + depth);
+        }
+        game = Positions.named(position);
+        long counted = perft();
+        if (counted != nodes[depth - 1]) {
+            throw new IllegalStateException(position + " perft(" + depth + ") = " + counted + ", expected "
+                    + nodes[depth - 1]);
+        }
+    }
+
+    @Benchmark
+    public long perft() {
+        return threads == 1 ? game.perft(depth) : game.perft(depth, threads);
+    }
+}
@@ -0,0 +1,62 @@
+package benchmark;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+
+/**
+ * Positions shared by the benchmarks: the start, a middlegame reached by playing
+ * moves from it, and the standard perft test positions as FEN.
+ */
+public final class Positions {
+    // Giuoco Piano after 1. e4 e5 2. Nf3 Nc6 3. Bc4 Bc5 4. c3 Nf6 5. d3 d6 6. Nbd2 a6
+    private static final String[] MIDDLEGAME = {
+            "e2e4", "e7e5", "g1f3", "b8c6", "f1c4", "f8c5",
+            "c2c3", "g8f6", "d2d3", "d7d6", "b1d2", "a7a6"
+    };
+
+    // Castling both ways, pins and en passant with pieces on most lines
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+    // Rook and pawns, with en passant captures that expose the king along the rank
+    private static final String ENDGAME = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+    // White in check, black still able to castle, and promotions with and without capture
+    private static final String CASTLING = "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1";
+    // A pawn on d7 that promotes by moving or by capturing on c8
+    private static final String PROMOTION = "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8";
+
+    private Positions() {
+    }
+
+    public static ChessGame named(String name) {
+        return switch (name) {
+            case "start" -> new ChessGame();
+            case "middlegame" -> play(MIDDLEGAME);
+            case "kiwipete" -> ChessGame.fromFen(KIWIPETE);
+            case "endgame" -> ChessGame.fromFen(ENDGAME);
+            case "castling" -> ChessGame.fromFen(CASTLING);
+            case "promotion" -> ChessGame.fromFen(PROMOTION);
+            default -> throw new IllegalArgumentException("Unknown position: " + name);
+        };
+    }
+
+    public static ChessGame play(String... moves) {
+        ChessGame game = new ChessGame();
+        for (String move : moves) {
+            try {
+                game.makeMove(parse(move));
+            } catch (InvalidMoveException e) {
+                throw new IllegalStateException("Illegal move " + move, e);
+            }
+        }
+        return game;
+    }
+
+    public static ChessMove parse(String move) {
+        return ChessMove.of(square(move, 0), square(move, 2), null);
+    }
+
+    private static ChessPosition square(String move, int offset) {
+        return ChessPosition.of(move.charAt(offset + 1) - '0', move.charAt(offset) - 'a' + 1);
+    }
+}
@@ -169,7 +169,10 @@ public class ServerFacade {
       jsonObject.add("board", context.serialize(src.getBoard()));
       jsonObject.addProperty("teamTurn", src.getTeamTurn().toString());
       jsonObject.add("lastMove", context.serialize(src.getLastMove()));
-      jsonObject.addProperty("isGameOver", src.isGameOver());
+      jsonObject.addProperty("isGameOver", src.isMarkedGameOver());
+      jsonObject.addProperty("halfmoveClock", src.getHalfmoveClock());
+      jsonObject.addProperty("fullmoveNumber", src.getFullmoveNumber());
+      jsonObject.add("positionHistory", context.serialize(src.getPositionHistory()));
       return jsonObject;
     }
 
@@ -186,6 +189,15 @@ public class ServerFacade {
       if (jsonObject.has("isGameOver")) {
         game.setGameOver(jsonObject.get("isGameOver").getAsBoolean());
       }
+      if (jsonObject.has("halfmoveClock")) {
+        game.setHalfmoveClock(jsonObject.get("halfmoveClock").getAsInt());
+      }
+      if (jsonObject.has("fullmoveNumber")) {
+        game.setFullmoveNumber(jsonObject.get("fullmoveNumber").getAsInt());
+      }
+      if (jsonObject.has("positionHistory")) {
+        game.setPositionHistory(context.deserialize(jsonObject.get("positionHistory"), long[].class));
+      }
       return game;
     }
   }
@@ -232,11 +244,11 @@ public class ServerFacade {
         String[] parts = posStr.substring(14, posStr.length() - 1).split(", ");
         int row = Integer.parseInt(parts[0].split("=")[1]);
         int col = Integer.parseInt(parts[1].split("=")[1]);
-        return new ChessPosition(row, col);
+        return ChessPosition.of(row, col);
       } else {
         // Fallback to the old format if needed
         String[] parts = posStr.split(",");
-        return new ChessPosition(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
+        return ChessPosition.of(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
       }
     }
   }
@@ -54,7 +54,7 @@ public class ChessboardUI {
       for (int col = 0; col < 8; col++) {
         int actualRow = whiteAtBottom ? 8 - row : row + 1;
         int actualCol = whiteAtBottom ? col + 1 : 8 - col;
-        ChessPosition position = new ChessPosition(actualRow, actualCol);
+        ChessPosition position = ChessPosition.of(actualRow, actualCol);
         ChessPiece piece = game.getBoard().getPiece(position);
 
         boolean isLightSquare = (row + col) % 2 == 0;
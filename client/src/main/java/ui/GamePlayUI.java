@@ -43,7 +43,7 @@ public class GamePlayUI {
     }
     ChessPosition start = parsePosition(parts[0]);
     ChessPosition end = parsePosition(parts[1]);
-    return new ChessMove(start, end, null); // Assuming no promotion for simplicity
+    return ChessMove.of(start, end, null); // Assuming no promotion for simplicity
   }
 
   private ChessPosition parsePosition(String pos) {
@@ -52,6 +52,6 @@ public class GamePlayUI {
     }
     int col = pos.charAt(0) - 'a' + 1;
     int row = Character.getNumericValue(pos.charAt(1));
-    return new ChessPosition(row, col);
+    return ChessPosition.of(row, col);
   }
 }
\ No newline at end of file
@@ -203,7 +203,7 @@ public class PostloginUI {
     }
     ChessPosition start = parsePosition(parts[0]);
     ChessPosition end = parsePosition(parts[1]);
-    return new ChessMove(start, end, null); // Assuming no promotion for simplicity
+    return ChessMove.of(start, end, null); // Assuming no promotion for simplicity
   }
 
   private ChessPosition parsePosition(String pos) {
@@ -212,7 +212,7 @@ public class PostloginUI {
     }
     int col = pos.charAt(0) - 'a' + 1;
     int row = Character.getNumericValue(pos.charAt(1));
-    return new ChessPosition(row, col);
+    return ChessPosition.of(row, col);
   }
 
   public void updateGameState(GameState gameState) {
@@ -0,0 +1,195 @@
+package dataaccess;
+
+import chess.ChessMove;
+import model.*;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Caches auth token lookups in front of another DataAccess. Found tokens are kept
+ * for {@code ttlMillis} and unknown ones for {@code negativeTtlMillis}, so repeated
+ * requests with a bad token do not reach the database either. The least recently
+ * used entries are dropped beyond {@code maxEntries}. deleteAuth removes the token
+ * from the cache as well, so a logged-out token stops working at once.
+ */
+public class AuthCachingDataAccess implements DataAccess {
+  public static final long DEFAULT_TTL_MILLIS = 300_000;
+  public static final long DEFAULT_NEGATIVE_TTL_MILLIS = 5_000;
+  public static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+  private final DataAccess delegate;
+  private final long ttlNanos;
+  private final long negativeTtlNanos;
+  private final LongSupplier clock;
+  private final Map<String, Entry> tokens;
+  // Bumped whenever a token is added or removed, so a lookup that raced with the
+  // change does not cache its result
+  private long invalidations;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder negativeHits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  // auth is null for a token the database does not know
+  private record Entry(AuthData auth, long expiresAt) {
+  }
+
+  public AuthCachingDataAccess(DataAccess delegate, long ttlMillis, long negativeTtlMillis, int maxEntries) {
+    this(delegate, ttlMillis, negativeTtlMillis, maxEntries, System::nanoTime);
+  }
+
+  AuthCachingDataAccess(DataAccess delegate, long ttlMillis, long negativeTtlMillis, int maxEntries,
+                        LongSupplier clock) {
+    if (ttlMillis < 0 || negativeTtlMillis < 0 || maxEntries < 1) {
+      throw new IllegalArgumentException("Invalid auth cache settings");
+    }
+    this.delegate = delegate;
+    this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    this.negativeTtlNanos = TimeUnit.MILLISECONDS.toNanos(negativeTtlMillis);
+    this.clock = clock;
+    this.tokens = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+        return size() > maxEntries;
+      }
+    };
+  }
+
+  @Override
+  public void clear() throws DataAccessException {
+    synchronized (tokens) {
+      tokens.clear();
+      invalidations++;
+    }
+    delegate.clear();
+  }
+
+  @Override
+  public void createUser(UserData user) throws DataAccessException {
+    delegate.createUser(user);
+  }
+
+  @Override
+  public UserData getUser(String username) throws DataAccessException {
+    return delegate.getUser(username);
+  }
+
+  @Override
+  public void createGame(GameData game) throws DataAccessException {
+    delegate.createGame(game);
+  }
+
+  @Override
+  public GameData getGame(int gameID) throws DataAccessException {
+    return delegate.getGame(gameID);
+  }
+
+  @Override
+  public Collection<GameData> listGames() throws DataAccessException {
+    return delegate.listGames();
+  }
+
+  @Override
+  public void updateGame(GameData game) throws DataAccessException {
+    delegate.updateGame(game);
+  }
+
+  @Override
+  public void appendMove(GameData game, ChessMove move) throws DataAccessException {
+    delegate.appendMove(game, move);
+  }
+
+  @Override
+  public List<ChessMove> getMoves(int gameID) throws DataAccessException {
+    return delegate.getMoves(gameID);
+  }
+
+  @Override
+  public void createAuth(AuthData auth) throws DataAccessException {
+    delegate.createAuth(auth);
+    synchronized (tokens) {
+      // A lookup still in flight must not overwrite this with a negative entry
+      invalidations++;
+      tokens.put(auth.authToken(), new Entry(auth, clock.getAsLong() + ttlNanos));
+    }
+  }
+
+  @Override
+  public AuthData getAuth(String authToken) throws DataAccessException {
+    if (authToken == null) {
+      return delegate.getAuth(null);
+    }
+    long seen;
+    synchronized (tokens) {
+      Entry entry = tokens.get(authToken);
+      if (entry != null) {
+        if (clock.getAsLong() - entry.expiresAt() < 0) {
+          if (entry.auth() == null) {
+            negativeHits.increment();
+          } else {
+            hits.increment();
+          }
+          return entry.auth();
+        }
+        tokens.remove(authToken);
+      }
+      seen = invalidations;
+    }
+
+    misses.increment();
+    AuthData auth = delegate.getAuth(authToken);
+    synchronized (tokens) {
+      if (invalidations == seen) {
+        tokens.put(authToken, new Entry(auth, clock.getAsLong() + (auth == null ? negativeTtlNanos : ttlNanos)));
+      }
+    }
+    return auth;
+  }
+
+  @Override
+  public void deleteAuth(String authToken) throws DataAccessException {
+    invalidate(authToken);
+    try {
+      delegate.deleteAuth(authToken);
+    } finally {
+      invalidate(authToken);
+    }
+  }
+
+  public int size() {
+    synchronized (tokens) {
+      return tokens.size();
+    }
+  }
+
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  public long getNegativeHitCount() {
+    return negativeHits.sum();
+  }
+
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  private void invalidate(String authToken) {
+    synchronized (tokens) {
+      tokens.remove(authToken);
+      invalidations++;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return String.format("AuthCachingDataAccess[entries=%d, hits=%d, negativeHits=%d, misses=%d]",
+            size(), getHitCount(), getNegativeHitCount(), getMissCount());
+  }
+}
@@ -0,0 +1,450 @@
+package dataaccess;
+
+import chess.ChessMove;
+import model.*;
+
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLNonTransientException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Write-behind cache for games in front of another DataAccess. Games that have been
+ * read or written are kept in memory and served from there, and their changes are
+ * queued: repeated updateGame calls for a game collapse into one, and moves are
+ * written in order. The queue is flushed every {@code flushIntervalMillis}, as soon
+ * as {@code dirtyThreshold} writes are waiting, when a game ends and on close.
+ * Users and auth tokens pass straight through, as does createGame.
+ *
+ * <p>Games read from here must not be modified in place; pass a changed copy to
+ * updateGame or appendMove instead. Working out a game's status writes to its caches,
+ * so it is done before a game is shared; after that every caller only reads it.
+ *
+ * <p>A write the database rejects outright, such as a duplicate move, is dropped
+ * along with the rest of that game's queue, and the game is read back from the
+ * database. Other failures stay queued for the next flush.
+ */
+public class CachingDataAccess implements DataAccess, AutoCloseable {
+  public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+  public static final int DEFAULT_DIRTY_THRESHOLD = 256;
+  // Finished or abandoned games with nothing left to write are dropped after this long
+  private static final long IDLE_EVICTION_NANOS = TimeUnit.MINUTES.toNanos(10);
+  private static final Logger LOGGER = Logger.getLogger(CachingDataAccess.class.getName());
+
+  private final DataAccess delegate;
+  private final int dirtyThreshold;
+  private final Map<Integer, Entry> games = new ConcurrentHashMap<>();
+  private final AtomicInteger dirty = new AtomicInteger();
+  private final AtomicBoolean flushRequested = new AtomicBoolean();
+  private final ScheduledExecutorService flusher;
+  private volatile boolean closed;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder flushes = new LongAdder();
+  private final LongAdder writes = new LongAdder();
+
+  private static final class Entry {
+    // Held for the whole of a flush, so two flushes never write one game out of order
+    private final Object flushLock = new Object();
+    private GameData game;
+    private List<PendingMove> moves = new ArrayList<>();
+    private boolean updatePending;
+    private long touched = System.nanoTime();
+    // Set once the entry has left the map; writers then look the game up again
+    private boolean evicted;
+
+    private Entry(GameData game) {
+      this.game = game;
+    }
+  }
+
+  private record PendingMove(GameData game, ChessMove move) {
+  }
+
+  public CachingDataAccess(DataAccess delegate, long flushIntervalMillis, int dirtyThreshold) {
+    this(delegate, flushIntervalMillis, dirtyThreshold, true);
+  }
+
+  /**
+   * With {@code background} false nothing is written until {@link #flush()} or
+   * {@link #close()} is called, or a game ends.
+   */
+  CachingDataAccess(DataAccess delegate, long flushIntervalMillis, int dirtyThreshold, boolean background) {
+    if (flushIntervalMillis < 1 || dirtyThreshold < 1) {
+      throw new IllegalArgumentException("Flush interval and dirty threshold must be positive");
+    }
+    this.delegate = delegate;
+    this.dirtyThreshold = dirtyThreshold;
+    if (background) {
+      flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "game-cache-flush");
+        thread.setDaemon(true);
+        return thread;
+      });
+      flusher.scheduleWithFixedDelay(this::flushInBackground, flushIntervalMillis, flushIntervalMillis,
+              TimeUnit.MILLISECONDS);
+    } else {
+      flusher = null;
+    }
+  }
+
+  @Override
+  public void clear() throws DataAccessException {
+    for (Map.Entry<Integer, Entry> cached : games.entrySet()) {
+      Entry entry = cached.getValue();
+      synchronized (entry.flushLock) {
+        synchronized (entry) {
+          dirty.addAndGet(-(entry.moves.size() + (entry.updatePending ? 1 : 0)));
+          entry.moves = new ArrayList<>();
+          entry.updatePending = false;
+          entry.evicted = true;
+          games.remove(cached.getKey(), entry);
+        }
+      }
+    }
+    delegate.clear();
+  }
+
+  @Override
+  public void createUser(UserData user) throws DataAccessException {
+    delegate.createUser(user);
+  }
+
+  @Override
+  public UserData getUser(String username) throws DataAccessException {
+    return delegate.getUser(username);
+  }
+
+  // Not cached until it is first read, as the store may assign the ID
+  @Override
+  public void createGame(GameData game) throws DataAccessException {
+    delegate.createGame(game);
+  }
+
+  @Override
+  public GameData getGame(int gameID) throws DataAccessException {
+    Entry entry = games.get(gameID);
+    if (entry != null) {
+      hits.increment();
+      synchronized (entry) {
+        entry.touched = System.nanoTime();
+        return entry.game;
+      }
+    }
+    misses.increment();
+    GameData game = delegate.getGame(gameID);
+    if (game == null) {
+      return null;
+    }
+    game.game().getGameStatus();
+    // Another thread may have loaded or changed the game in the meantime
+    Entry loaded = games.computeIfAbsent(gameID, id -> new Entry(game));
+    synchronized (loaded) {
+      return loaded.game;
+    }
+  }
+
+  @Override
+  public Collection<GameData> listGames() throws DataAccessException {
+    Map<Integer, GameData> listed = new LinkedHashMap<>();
+    for (GameData game : delegate.listGames()) {
+      listed.put(game.gameID(), game);
+    }
+    for (Map.Entry<Integer, Entry> cached : games.entrySet()) {
+      synchronized (cached.getValue()) {
+        listed.put(cached.getKey(), cached.getValue().game);
+      }
+    }
+    return new ArrayList<>(listed.values());
+  }
+
+  @Override
+  public void updateGame(GameData game) throws DataAccessException {
+    boolean finished = game.game().isGameOver();
+    while (true) {
+      Entry entry = entryFor(game.gameID(), "Updating game failed, game not found");
+      synchronized (entry) {
+        if (entry.evicted) {
+          continue;
+        }
+        entry.game = game;
+        entry.touched = System.nanoTime();
+        if (!entry.updatePending) {
+          entry.updatePending = true;
+          dirty.incrementAndGet();
+        }
+      }
+      afterWrite(entry, game, finished);
+      return;
+    }
+  }
+
+  /**
+   * @throws DataAccessException if {@code game} is not one move on from the cached
+   *                             game, as when two moves were made from the same state
+   */
+  @Override
+  public void appendMove(GameData game, ChessMove move) throws DataAccessException {
+    boolean finished = game.game().isGameOver();
+    while (true) {
+      Entry entry = entryFor(game.gameID(), "Appending move failed, game not found");
+      synchronized (entry) {
+        if (entry.evicted) {
+          continue;
+        }
+        if (game.game().getPly() != entry.game.game().getPly() + 1) {
+          throw new DataAccessException("Appending move failed, game " + game.gameID() + " changed meanwhile");
+        }
+        entry.game = game;
+        entry.touched = System.nanoTime();
+        entry.moves.add(new PendingMove(game, move));
+        dirty.incrementAndGet();
+      }
+      afterWrite(entry, game, finished);
+      return;
+    }
+  }
+
+  @Override
+  public List<ChessMove> getMoves(int gameID) throws DataAccessException {
+    Entry entry = games.get(gameID);
+    if (entry == null) {
+      return delegate.getMoves(gameID);
+    }
+    // Nothing is written while the flush lock is held, so the stored moves and the
+    // queued ones add up to the whole game
+    synchronized (entry.flushLock) {
+      List<ChessMove> moves = delegate.getMoves(gameID);
+      synchronized (entry) {
+        for (PendingMove pending : entry.moves) {
+          moves.add(pending.move());
+        }
+      }
+      return moves;
+    }
+  }
+
+  @Override
+  public void createAuth(AuthData auth) throws DataAccessException {
+    delegate.createAuth(auth);
+  }
+
+  @Override
+  public AuthData getAuth(String authToken) throws DataAccessException {
+    return delegate.getAuth(authToken);
+  }
+
+  @Override
+  public void deleteAuth(String authToken) throws DataAccessException {
+    delegate.deleteAuth(authToken);
+  }
+
+  /**
+   * Writes every queued change and drops games that have been idle for a while.
+   *
+   * @throws DataAccessException from the first game that could not be written; its
+   *                             changes stay queued and the other games are still
+   *                             written
+   */
+  public void flush() throws DataAccessException {
+    flushRequested.set(false);
+    flushes.increment();
+    DataAccessException failure = null;
+    long now = System.nanoTime();
+    for (Map.Entry<Integer, Entry> cached : games.entrySet()) {
+      Entry entry = cached.getValue();
+      try {
+        flush(cached.getKey(), entry);
+      } catch (DataAccessException e) {
+        if (failure == null) {
+          failure = e;
+        }
+        continue;
+      }
+      synchronized (entry) {
+        if (entry.moves.isEmpty() && !entry.updatePending && now - entry.touched > IDLE_EVICTION_NANOS) {
+          entry.evicted = true;
+          games.remove(cached.getKey(), entry);
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  private void flush(int gameID, Entry entry) throws DataAccessException {
+    synchronized (entry.flushLock) {
+      List<PendingMove> moves;
+      GameData update;
+      synchronized (entry) {
+        moves = entry.moves;
+        update = entry.updatePending ? entry.game : null;
+        if (moves.isEmpty() && update == null) {
+          return;
+        }
+        entry.moves = new ArrayList<>();
+        entry.updatePending = false;
+      }
+
+      int written = 0;
+      try {
+        for (PendingMove pending : moves) {
+          delegate.appendMove(pending.game(), pending.move());
+          written++;
+        }
+        // Written last, so its snapshot is never older than the moves before it
+        if (update != null) {
+          delegate.updateGame(update);
+          written++;
+        }
+      } catch (DataAccessException e) {
+        if (isPermanent(e)) {
+          drop(gameID, entry, moves.size() - Math.min(written, moves.size()) + (update != null ? 1 : 0), e);
+          throw e;
+        }
+        synchronized (entry) {
+          entry.moves.addAll(0, moves.subList(Math.min(written, moves.size()), moves.size()));
+          if (update != null) {
+            // Still counted as dirty; a newer update queued meanwhile replaces it
+            if (entry.updatePending) {
+              dirty.decrementAndGet();
+            }
+            entry.updatePending = true;
+          }
+        }
+        throw e;
+      } finally {
+        dirty.addAndGet(-written);
+        writes.add(written);
+      }
+    }
+  }
+
+  /**
+   * Writes everything still queued and stops the background flushes.
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    if (flusher != null) {
+      flusher.shutdown();
+      try {
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    try {
+      flush();
+    } catch (DataAccessException e) {
+      LOGGER.log(Level.SEVERE, dirty.get() + " game writes were lost on shutdown", e);
+    }
+  }
+
+  public int getCachedGames() {
+    return games.size();
+  }
+
+  public int getDirtyCount() {
+    return dirty.get();
+  }
+
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  public long getFlushCount() {
+    return flushes.sum();
+  }
+
+  public long getWriteCount() {
+    return writes.sum();
+  }
+
+  private Entry entryFor(int gameID, String missing) throws DataAccessException {
+    Entry entry = games.get(gameID);
+    if (entry != null) {
+      return entry;
+    }
+    GameData stored = delegate.getGame(gameID);
+    if (stored == null) {
+      throw new DataAccessException(missing);
+    }
+    stored.game().getGameStatus();
+    return games.computeIfAbsent(gameID, id -> new Entry(stored));
+  }
+
+  // Drops the writes that failed and everything queued behind them, and the game
+  // itself, so it is read back as the database has it
+  private void drop(int gameID, Entry entry, int failed, DataAccessException cause) {
+    synchronized (entry) {
+      int lost = failed + entry.moves.size() + (entry.updatePending ? 1 : 0);
+      dirty.addAndGet(-lost);
+      entry.moves = new ArrayList<>();
+      entry.updatePending = false;
+      entry.evicted = true;
+      games.remove(gameID, entry);
+      LOGGER.log(Level.SEVERE, "Dropped " + lost + " writes for game " + gameID + " that cannot succeed", cause);
+    }
+  }
+
+  // Rejected by the database itself, as opposed to failing to reach it
+  private static boolean isPermanent(DataAccessException e) {
+    for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+      if (cause instanceof SQLNonTransientException && !(cause instanceof SQLNonTransientConnectionException)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // A finished game is written straight away; otherwise wake the flusher once
+  // enough writes are waiting. A failed write stays queued for the next flush.
+  private void afterWrite(Entry entry, GameData game, boolean finished) {
+    if (finished || closed) {
+      try {
+        flush(game.gameID(), entry);
+      } catch (DataAccessException e) {
+        LOGGER.log(Level.WARNING, "Writing finished game " + game.gameID() + " failed, will retry", e);
+      }
+    } else if (dirty.get() >= dirtyThreshold && flusher != null && flushRequested.compareAndSet(false, true)) {
+      try {
+        flusher.execute(this::flushInBackground);
+      } catch (RejectedExecutionException e) {
+        // Shutting down; close() writes what is left
+      }
+    }
+  }
+
+  private void flushInBackground() {
+    try {
+      flush();
+    } catch (DataAccessException | RuntimeException e) {
+      LOGGER.log(Level.WARNING, "Flushing cached games failed, will retry", e);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return String.format("CachingDataAccess[games=%d, dirty=%d, hits=%d, misses=%d, flushes=%d, writes=%d]",
+            getCachedGames(), getDirtyCount(), getHitCount(), getMissCount(), getFlushCount(), getWriteCount());
+  }
+}
@@ -0,0 +1,386 @@
+package dataaccess;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
+
+/**
+ * Bounded pool of JDBC connections. Borrowed connections are proxies whose close()
+ * hands the connection back instead of closing it. Idle connections are checked
+ * with isValid before they are lent out again and closed once they have sat unused
+ * for too long. With leak detection on, a connection held longer than the leak
+ * threshold is logged together with the stack that borrowed it.
+ */
+public class ConnectionPool implements AutoCloseable {
+  private static final Logger LOGGER = Logger.getLogger(ConnectionPool.class.getName());
+
+  @FunctionalInterface
+  public interface ConnectionFactory {
+    Connection open() throws SQLException;
+  }
+
+  /**
+   * Pool limits, read from {@code db.pool.*} properties. A leak threshold of 0
+   * turns leak detection off.
+   */
+  public record Settings(int maxSize, long maxWaitMillis, long idleTimeoutMillis,
+                         int validationTimeoutSeconds, long leakThresholdMillis) {
+    public Settings {
+      if (maxSize < 1 || maxWaitMillis < 0 || idleTimeoutMillis < 1 || validationTimeoutSeconds < 0
+              || leakThresholdMillis < 0) {
+        throw new IllegalArgumentException("Invalid connection pool settings");
+      }
+    }
+
+    public static Settings from(Properties props) {
+      return new Settings(
+              Integer.parseInt(props.getProperty("db.pool.maxSize", "10")),
+              Long.parseLong(props.getProperty("db.pool.maxWaitMillis", "5000")),
+              Long.parseLong(props.getProperty("db.pool.idleTimeoutMillis", "300000")),
+              Integer.parseInt(props.getProperty("db.pool.validationTimeoutSeconds", "2")),
+              Long.parseLong(props.getProperty("db.pool.leakThresholdMillis", "30000")));
+    }
+  }
+
+  private final ConnectionFactory factory;
+  private final Settings settings;
+  private final Semaphore permits;
+  // Most recently returned first, so the oldest idle connections sit at the tail
+  private final Deque<Idle> idle = new ArrayDeque<>();
+  private final Map<Lease, Boolean> borrowed = new ConcurrentHashMap<>();
+  private final ScheduledExecutorService maintenance;
+  private final LongSupplier clock;
+  private volatile boolean closed;
+
+  private final LongAdder borrows = new LongAdder();
+  private final LongAdder timeouts = new LongAdder();
+  private final LongAdder created = new LongAdder();
+  private final LongAdder discarded = new LongAdder();
+  private final LongAdder leaks = new LongAdder();
+  private final LongAdder waitNanos = new LongAdder();
+  private final AtomicLong maxWaitNanos = new AtomicLong();
+
+  private record Idle(Connection connection, long returnedAt) {
+  }
+
+  public ConnectionPool(ConnectionFactory factory, Settings settings) {
+    this(factory, settings, true, System::nanoTime);
+  }
+
+  /**
+   * With {@code background} false no maintenance thread is started, and idle
+   * eviction and leak detection only run when {@link #evictIdle()} and
+   * {@link #detectLeaks()} are called. Idle and borrowed times are measured in
+   * nanoseconds of {@code clock}.
+   */
+  ConnectionPool(ConnectionFactory factory, Settings settings, boolean background, LongSupplier clock) {
+    this.factory = factory;
+    this.settings = settings;
+    this.clock = clock;
+    this.permits = new Semaphore(settings.maxSize(), true);
+    if (background) {
+      long period = Math.max(1000, Math.min(settings.idleTimeoutMillis(),
+              settings.leakThresholdMillis() > 0 ? settings.leakThresholdMillis() : Long.MAX_VALUE) / 2);
+      maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "db-pool-maintenance");
+        thread.setDaemon(true);
+        return thread;
+      });
+      maintenance.scheduleAtFixedRate(() -> {
+        evictIdle();
+        detectLeaks();
+      }, period, period, TimeUnit.MILLISECONDS);
+    } else {
+      maintenance = null;
+    }
+  }
+
+  /**
+   * Lends out a connection, waiting up to the configured time for one to be
+   * returned when the pool is at its limit.
+   */
+  public Connection borrow() throws SQLException {
+    if (closed) {
+      throw new SQLException("Connection pool is closed");
+    }
+    long start = clock.getAsLong();
+    try {
+      if (!permits.tryAcquire(settings.maxWaitMillis(), TimeUnit.MILLISECONDS)) {
+        timeouts.increment();
+        throw new SQLException("Timed out after " + settings.maxWaitMillis() + " ms waiting for a database connection");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted while waiting for a database connection", e);
+    }
+    long waited = clock.getAsLong() - start;
+    waitNanos.add(waited);
+    maxWaitNanos.accumulateAndGet(waited, Math::max);
+    borrows.increment();
+
+    try {
+      Lease lease = new Lease(takeConnection());
+      borrowed.put(lease, Boolean.TRUE);
+      return lease.proxy;
+    } catch (SQLException | RuntimeException e) {
+      permits.release();
+      throw e;
+    }
+  }
+
+  private Connection takeConnection() throws SQLException {
+    while (true) {
+      Idle candidate;
+      synchronized (idle) {
+        candidate = idle.pollFirst();
+      }
+      if (candidate == null) {
+        Connection connection = factory.open();
+        created.increment();
+        return connection;
+      }
+      if (isExpired(candidate, clock.getAsLong()) || !isValid(candidate.connection())) {
+        discard(candidate.connection());
+        continue;
+      }
+      return candidate.connection();
+    }
+  }
+
+  private boolean isValid(Connection connection) {
+    try {
+      return connection.isValid(settings.validationTimeoutSeconds());
+    } catch (SQLException e) {
+      return false;
+    }
+  }
+
+  private void giveBack(Lease lease) {
+    borrowed.remove(lease);
+    try {
+      if (closed || lease.connection.isClosed()) {
+        discard(lease.connection);
+        return;
+      }
+      if (!lease.connection.getAutoCommit()) {
+        lease.connection.rollback();
+        lease.connection.setAutoCommit(true);
+      }
+      synchronized (idle) {
+        idle.addFirst(new Idle(lease.connection, clock.getAsLong()));
+      }
+    } catch (SQLException e) {
+      discard(lease.connection);
+    } finally {
+      permits.release();
+    }
+  }
+
+  /**
+   * Closes connections that have been idle for longer than the idle timeout and
+   * returns how many were closed.
+   */
+  public int evictIdle() {
+    long now = clock.getAsLong();
+    int evicted = 0;
+    while (true) {
+      Idle oldest;
+      synchronized (idle) {
+        oldest = idle.peekLast();
+        if (oldest == null || !isExpired(oldest, now)) {
+          return evicted;
+        }
+        idle.pollLast();
+      }
+      discard(oldest.connection());
+      evicted++;
+    }
+  }
+
+  private boolean isExpired(Idle entry, long now) {
+    return now - entry.returnedAt() > TimeUnit.MILLISECONDS.toNanos(settings.idleTimeoutMillis());
+  }
+
+  /**
+   * Logs connections held past the leak threshold, each one only once, and returns
+   * how many new ones were found.
+   */
+  public int detectLeaks() {
+    if (settings.leakThresholdMillis() == 0) {
+      return 0;
+    }
+    long now = clock.getAsLong();
+    long threshold = TimeUnit.MILLISECONDS.toNanos(settings.leakThresholdMillis());
+    int found = 0;
+    for (Lease lease : borrowed.keySet()) {
+      if (!lease.reported && now - lease.borrowedAt > threshold) {
+        lease.reported = true;
+        leaks.increment();
+        found++;
+        LOGGER.warning("Possible connection leak: held for "
+                + TimeUnit.NANOSECONDS.toMillis(now - lease.borrowedAt) + " ms, borrowed at\n" + stackOf(lease.borrower));
+      }
+    }
+    return found;
+  }
+
+  private static String stackOf(Throwable borrower) {
+    StringBuilder stack = new StringBuilder();
+    for (StackTraceElement element : borrower.getStackTrace()) {
+      stack.append("\tat ").append(element).append('\n');
+    }
+    return stack.toString();
+  }
+
+  private void discard(Connection connection) {
+    discarded.increment();
+    try {
+      connection.close();
+    } catch (SQLException e) {
+      LOGGER.fine("Error closing pooled connection: " + e.getMessage());
+    }
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    if (maintenance != null) {
+      maintenance.shutdownNow();
+    }
+    while (true) {
+      Idle entry;
+      synchronized (idle) {
+        entry = idle.pollFirst();
+      }
+      if (entry == null) {
+        return;
+      }
+      discard(entry.connection());
+    }
+  }
+
+  public int getMaxSize() {
+    return settings.maxSize();
+  }
+
+  public int getActiveConnections() {
+    return borrowed.size();
+  }
+
+  public int getIdleConnections() {
+    synchronized (idle) {
+      return idle.size();
+    }
+  }
+
+  public long getBorrowCount() {
+    return borrows.sum();
+  }
+
+  public long getTimeoutCount() {
+    return timeouts.sum();
+  }
+
+  public long getCreatedCount() {
+    return created.sum();
+  }
+
+  public long getDiscardedCount() {
+    return discarded.sum();
+  }
+
+  public long getLeakCount() {
+    return leaks.sum();
+  }
+
+  public double getAverageWaitMillis() {
+    long count = borrows.sum();
+    return count == 0 ? 0 : waitNanos.sum() / 1e6 / count;
+  }
+
+  public double getMaxWaitMillis() {
+    return maxWaitNanos.get() / 1e6;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("ConnectionPool[active=%d, idle=%d, max=%d, borrows=%d, timeouts=%d, avgWait=%.2fms, maxWait=%.2fms, leaks=%d]",
+            getActiveConnections(), getIdleConnections(), getMaxSize(), getBorrowCount(), getTimeoutCount(),
+            getAverageWaitMillis(), getMaxWaitMillis(), getLeakCount());
+  }
+
+  /**
+   * One loan of a connection. The proxy passes every call through except close(),
+   * which returns the connection to the pool, and isClosed(); once closed, the
+   * proxy refuses further use.
+   */
+  private final class Lease implements InvocationHandler {
+    private final Connection connection;
+    private final Connection proxy;
+    private final long borrowedAt = clock.getAsLong();
+    // Capturing the stack is costly, so it is only done when it may be logged
+    private final Throwable borrower = settings.leakThresholdMillis() > 0
+            ? new Throwable("Connection borrowed here") : null;
+    private volatile boolean reported;
+    private volatile boolean returned;
+
+    private Lease(Connection connection) {
+      this.connection = connection;
+      this.proxy = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+              new Class<?>[]{Connection.class}, this);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "close" -> {
+          synchronized (this) {
+            if (!returned) {
+              returned = true;
+              giveBack(this);
+            }
+          }
+          return null;
+        }
+        case "isClosed" -> {
+          return returned || connection.isClosed();
+        }
+        case "equals" -> {
+          return proxy == args[0];
+        }
+        case "hashCode" -> {
+          return System.identityHashCode(proxy);
+        }
+        case "toString" -> {
+          return "Pooled " + connection;
+        }
+        default -> {
+          if (returned) {
+            throw new SQLException("Connection has been returned to the pool");
+          }
+          try {
+            return method.invoke(connection, args);
+          } catch (InvocationTargetException e) {
+            throw e.getCause();
+          }
+        }
+      }
+    }
+  }
+}
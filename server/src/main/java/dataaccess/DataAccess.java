@@ -1,9 +1,11 @@
 package dataaccess;
 
+import chess.ChessMove;
 import model.UserData;
 import model.GameData;
 import model.AuthData;
 import java.util.Collection;
+import java.util.List;
 
 public interface DataAccess {
   void clear() throws DataAccessException;
@@ -13,6 +15,17 @@ public interface DataAccess {
   GameData getGame(int gameID) throws DataAccessException;
   Collection<GameData> listGames() throws DataAccessException;
   void updateGame(GameData game) throws DataAccessException;
+
+  /**
+   * Records a move just played in a game; {@code game} holds the position after it.
+   * Cheaper than updateGame when only the board has changed.
+   */
+  void appendMove(GameData game, ChessMove move) throws DataAccessException;
+
+  /**
+   * Every move played in the game so far, in order.
+   */
+  List<ChessMove> getMoves(int gameID) throws DataAccessException;
   void createAuth(AuthData auth) throws DataAccessException;
   AuthData getAuth(String authToken) throws DataAccessException;
   void deleteAuth(String authToken) throws DataAccessException;
@@ -8,6 +8,7 @@ public class DatabaseManager {
     private static final String USER;
     private static final String PASSWORD;
     private static final String CONNECTION_URL;
+    private static final ConnectionPool POOL;
 
     static {
         try (var propStream = DatabaseManager.class.getResourceAsStream("/db.properties")) {
@@ -22,6 +23,7 @@ public class DatabaseManager {
             String host = props.getProperty("db.host");
             String port = props.getProperty("db.port");
             CONNECTION_URL = String.format("jdbc:mysql://%s:%s", host, port);
+            POOL = new ConnectionPool(DatabaseManager::openConnection, ConnectionPool.Settings.from(props));
         } catch (Exception ex) {
             throw new RuntimeException("Unable to process db.properties: " + ex.getMessage());
         }
@@ -52,25 +54,48 @@ public class DatabaseManager {
                     "white_username VARCHAR(255), " +
                     "black_username VARCHAR(255), " +
                     "game_name VARCHAR(255) NOT NULL, " +
-                    "game_state TEXT NOT NULL)";
+                    "game_data BLOB NOT NULL, " +
+                    "snapshot_ply INT NOT NULL DEFAULT 0, " +
+                    "engine_color VARCHAR(5) NULL)";
+
+            String createMovesTable = "CREATE TABLE IF NOT EXISTS game_moves (" +
+                    "game_id INT NOT NULL, " +
+                    "ply INT NOT NULL, " +
+                    "move SMALLINT NOT NULL, " +
+                    "PRIMARY KEY (game_id, ply), " +
+                    "FOREIGN KEY (game_id) REFERENCES games (game_id) ON DELETE CASCADE)";
 
             try (Statement stmt = conn.createStatement()) {
                 stmt.executeUpdate(createUsersTable);
                 stmt.executeUpdate(createAuthTable);
                 stmt.executeUpdate(createGamesTable);
+                stmt.executeUpdate(createMovesTable);
             }
+            // Tables created by older versions may lack the newer columns
+            SchemaMigration.run(conn, DATABASE_NAME);
         } catch (SQLException e) {
             throw new DataAccessException("Error creating tables: " + e.getMessage());
         }
     }
 
+    /**
+     * Borrows a connection from the pool. Closing it gives it back.
+     */
     public static Connection getConnection() throws DataAccessException {
         try {
-            Connection conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
-            conn.setCatalog(DATABASE_NAME);
-            return conn;
+            return POOL.borrow();
         } catch (SQLException e) {
             throw new DataAccessException("Unable to connect to database: " + e.getMessage());
         }
     }
+
+    public static ConnectionPool getPool() {
+        return POOL;
+    }
+
+    private static Connection openConnection() throws SQLException {
+        Connection conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
+        conn.setCatalog(DATABASE_NAME);
+        return conn;
+    }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package dataaccess;
 
+import chess.ChessMove;
 import model.*;
 import java.util.*;
 
@@ -7,12 +8,14 @@ public class MemoryDataAccess implements DataAccess {
   private final Map<String, UserData> users = new HashMap<>();
   private final Map<Integer, GameData> games = new HashMap<>();
   private final Map<String, AuthData> auths = new HashMap<>();
+  private final Map<Integer, List<ChessMove>> moves = new HashMap<>();
 
   @Override
   public void clear() {
     users.clear();
     games.clear();
     auths.clear();
+    moves.clear();
   }
 
   @Override
@@ -54,6 +57,17 @@ public class MemoryDataAccess implements DataAccess {
     games.put(game.gameID(), game);
   }
 
+  @Override
+  public void appendMove(GameData game, ChessMove move) throws DataAccessException {
+    updateGame(game);
+    moves.computeIfAbsent(game.gameID(), id -> new ArrayList<>()).add(move);
+  }
+
+  @Override
+  public List<ChessMove> getMoves(int gameID) throws DataAccessException {
+    return new ArrayList<>(moves.getOrDefault(gameID, List.of()));
+  }
+
   @Override
   public void createAuth(AuthData auth) throws DataAccessException {
     auths.put(auth.authToken(), auth);
@@ -1,24 +1,34 @@
 package dataaccess;
 
-import chess.*;
-import com.google.gson.*;
+import chess.ChessGame;
+import chess.ChessGameCodec;
+import chess.ChessMove;
+import chess.InvalidMoveException;
 import model.*;
 
-import java.lang.reflect.Type;
 import java.sql.*;
 import java.util.*;
 
+/**
+ * Games are stored in the game_data column in the {@link ChessGameCodec} binary form.
+ * Moves are appended to game_moves, and the game row is only rewritten every
+ * {@code snapshotInterval} plies; a game is loaded from its latest snapshot with
+ * the later moves played on top.
+ */
 public class MySqlDataAccess implements DataAccess {
-  private final Gson gson;
+  public static final int DEFAULT_SNAPSHOT_INTERVAL = 16;
+
+  private final int snapshotInterval;
 
   public MySqlDataAccess() {
-    this.gson = new GsonBuilder()
-            .registerTypeAdapter(ChessGame.class, new ChessGameAdapter())
-            .registerTypeAdapter(ChessBoard.class, new ChessBoardAdapter())
-            .registerTypeAdapter(ChessPosition.class, new ChessPositionAdapter())
-            .registerTypeAdapter(ChessPiece.class, new ChessPieceAdapter())
-            .registerTypeAdapter(ChessMove.class, new ChessMoveAdapter())
-            .create();
+    this(DEFAULT_SNAPSHOT_INTERVAL);
+  }
+
+  public MySqlDataAccess(int snapshotInterval) {
+    if (snapshotInterval < 1) {
+      throw new IllegalArgumentException("Snapshot interval must be positive");
+    }
+    this.snapshotInterval = snapshotInterval;
   }
 
   @Override
@@ -26,6 +36,7 @@ public class MySqlDataAccess implements DataAccess {
     try (Connection conn = DatabaseManager.getConnection()) {
       String[] clearStatements = {
               "DELETE FROM auth_tokens",
+              "DELETE FROM game_moves",
               "DELETE FROM games",
               "DELETE FROM users"
       };
@@ -77,14 +88,17 @@ public class MySqlDataAccess implements DataAccess {
 
   @Override
   public void createGame(GameData game) throws DataAccessException {
-    String sql = "INSERT INTO games (game_id, white_username, black_username, game_name, game_state) VALUES (?, ?, ?, ?, ?)";
+    String sql = "INSERT INTO games (game_id, white_username, black_username, game_name, game_data, snapshot_ply, "
+            + "engine_color) VALUES (?, ?, ?, ?, ?, ?, ?)";
     try (Connection conn = DatabaseManager.getConnection();
          PreparedStatement stmt = conn.prepareStatement(sql)) {
       stmt.setInt(1, game.gameID());
       stmt.setString(2, game.whiteUsername());
       stmt.setString(3, game.blackUsername());
       stmt.setString(4, game.gameName());
-      stmt.setString(5, gson.toJson(game.game()));
+      stmt.setBytes(5, ChessGameCodec.encode(game.game()));
+      stmt.setInt(6, game.game().getPly());
+      stmt.setString(7, colorName(game.engineColor()));
       int affectedRows = stmt.executeUpdate();
 
       if (affectedRows == 0) {
@@ -97,18 +111,32 @@ public class MySqlDataAccess implements DataAccess {
 
   @Override
   public GameData getGame(int gameID) throws DataAccessException {
-    String sql = "SELECT game_id, white_username, black_username, game_name, game_state FROM games WHERE game_id = ?";
+    String sql = "SELECT game_id, white_username, black_username, game_name, game_data, snapshot_ply, engine_color "
+            + "FROM games WHERE game_id = ?";
+    String movesSql = "SELECT game_id, ply, move FROM game_moves WHERE game_id = ? AND ply > ? ORDER BY ply";
     try (Connection conn = DatabaseManager.getConnection();
          PreparedStatement stmt = conn.prepareStatement(sql)) {
       stmt.setInt(1, gameID);
       try (ResultSet rs = stmt.executeQuery()) {
         if (rs.next()) {
+          ChessGame game = decodeGame(rs);
+          try (PreparedStatement moves = conn.prepareStatement(movesSql)) {
+            moves.setInt(1, gameID);
+            moves.setInt(2, rs.getInt("snapshot_ply"));
+            try (ResultSet moveRs = moves.executeQuery()) {
+              while (moveRs.next()) {
+                replay(game, moveRs);
+              }
+            }
+          }
           return new GameData(
                   rs.getInt("game_id"),
                   rs.getString("white_username"),
                   rs.getString("black_username"),
                   rs.getString("game_name"),
-                  gson.fromJson(rs.getString("game_state"), ChessGame.class)
+                  game,
+                  null,
+                  engineColor(rs)
           );
         }
       }
@@ -120,43 +148,110 @@ public class MySqlDataAccess implements DataAccess {
 
   @Override
   public Collection<GameData> listGames() throws DataAccessException {
-    Collection<GameData> games = new ArrayList<>();
-    String sql = "SELECT game_id, white_username, black_username, game_name, game_state FROM games";
-    try (Connection conn = DatabaseManager.getConnection();
-         PreparedStatement stmt = conn.prepareStatement(sql);
-         ResultSet rs = stmt.executeQuery()) {
-      while (rs.next()) {
-        int gameID = rs.getInt("game_id");
-        String gameName = rs.getString("game_name");
-        String whiteUsername = rs.getString("white_username");
-        String blackUsername = rs.getString("black_username");
-        ChessGame game = gson.fromJson(rs.getString("game_state"), ChessGame.class);
-        games.add(new GameData(gameID, whiteUsername, blackUsername, gameName, game));
+    Map<Integer, GameData> games = new LinkedHashMap<>();
+    String sql = "SELECT game_id, white_username, black_username, game_name, game_data, engine_color FROM games";
+    // Moves after each game's snapshot, fetched for every game at once
+    String movesSql = "SELECT m.game_id, m.ply, m.move FROM game_moves m JOIN games g ON g.game_id = m.game_id "
+            + "WHERE m.ply > g.snapshot_ply ORDER BY m.game_id, m.ply";
+    try (Connection conn = DatabaseManager.getConnection()) {
+      try (PreparedStatement stmt = conn.prepareStatement(sql);
+           ResultSet rs = stmt.executeQuery()) {
+        while (rs.next()) {
+          int gameID = rs.getInt("game_id");
+          String gameName = rs.getString("game_name");
+          String whiteUsername = rs.getString("white_username");
+          String blackUsername = rs.getString("black_username");
+          ChessGame game = decodeGame(rs);
+          games.put(gameID, new GameData(gameID, whiteUsername, blackUsername, gameName, game, null, engineColor(rs)));
+        }
+      }
+      try (PreparedStatement stmt = conn.prepareStatement(movesSql);
+           ResultSet rs = stmt.executeQuery()) {
+        while (rs.next()) {
+          GameData game = games.get(rs.getInt("game_id"));
+          // Games created since the first query are not listed
+          if (game != null) {
+            replay(game.game(), rs);
+          }
+        }
       }
     } catch (SQLException e) {
       throw new DataAccessException("Error listing games: " + e.getMessage());
     }
-    return games;
+    return new ArrayList<>(games.values());
   }
 
   @Override
   public void updateGame(GameData game) throws DataAccessException {
-    String sql = "UPDATE games SET white_username = ?, black_username = ?, game_name = ?, game_state = ? WHERE game_id = ?";
+    String sql = "UPDATE games SET white_username = ?, black_username = ?, game_name = ?, game_data = ?, snapshot_ply = ?, "
+            + "engine_color = ? WHERE game_id = ?";
     try (Connection conn = DatabaseManager.getConnection();
          PreparedStatement stmt = conn.prepareStatement(sql)) {
       stmt.setString(1, game.whiteUsername());
       stmt.setString(2, game.blackUsername());
       stmt.setString(3, game.gameName());
-      stmt.setString(4, gson.toJson(game.game()));
-      stmt.setInt(5, game.gameID());
+      stmt.setBytes(4, ChessGameCodec.encode(game.game()));
+      stmt.setInt(5, game.game().getPly());
+      stmt.setString(6, colorName(game.engineColor()));
+      stmt.setInt(7, game.gameID());
       int affectedRows = stmt.executeUpdate();
 
       if (affectedRows == 0) {
         throw new DataAccessException("Updating game failed, no rows affected.");
       }
     } catch (SQLException e) {
-      throw new DataAccessException("Error updating game: " + e.getMessage());
+      throw new DataAccessException("Error updating game: " + e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public void appendMove(GameData game, ChessMove move) throws DataAccessException {
+    String sql = "INSERT INTO game_moves (game_id, ply, move) VALUES (?, ?, ?)";
+    String snapshotSql = "UPDATE games SET game_data = ?, snapshot_ply = ? WHERE game_id = ?";
+    int ply = game.game().getPly();
+    try (Connection conn = DatabaseManager.getConnection()) {
+      conn.setAutoCommit(false);
+      try {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+          stmt.setInt(1, game.gameID());
+          stmt.setInt(2, ply);
+          stmt.setShort(3, (short) ChessGameCodec.encodeMove(move));
+          stmt.executeUpdate();
+        }
+        if (ply % snapshotInterval == 0) {
+          try (PreparedStatement stmt = conn.prepareStatement(snapshotSql)) {
+            stmt.setBytes(1, ChessGameCodec.encode(game.game()));
+            stmt.setInt(2, ply);
+            stmt.setInt(3, game.gameID());
+            stmt.executeUpdate();
+          }
+        }
+        conn.commit();
+      } catch (SQLException e) {
+        conn.rollback();
+        throw e;
+      }
+    } catch (SQLException e) {
+      throw new DataAccessException("Error appending move: " + e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public List<ChessMove> getMoves(int gameID) throws DataAccessException {
+    List<ChessMove> moves = new ArrayList<>();
+    String sql = "SELECT move FROM game_moves WHERE game_id = ? ORDER BY ply";
+    try (Connection conn = DatabaseManager.getConnection();
+         PreparedStatement stmt = conn.prepareStatement(sql)) {
+      stmt.setInt(1, gameID);
+      try (ResultSet rs = stmt.executeQuery()) {
+        while (rs.next()) {
+          moves.add(ChessGameCodec.decodeMove(rs.getShort("move")));
+        }
+      }
+    } catch (SQLException e) {
+      throw new DataAccessException("Error getting moves: " + e.getMessage());
     }
+    return moves;
   }
 
   @Override
@@ -204,126 +299,33 @@ public class MySqlDataAccess implements DataAccess {
     }
   }
 
-  private static class ChessGameAdapter implements JsonSerializer<ChessGame>, JsonDeserializer<ChessGame> {
-    @Override
-    public JsonElement serialize(ChessGame src, Type typeOfSrc, JsonSerializationContext context) {
-      JsonObject jsonObject = new JsonObject();
-      jsonObject.add("board", context.serialize(src.getBoard()));
-      jsonObject.addProperty("teamTurn", src.getTeamTurn().toString());
-      jsonObject.add("lastMove", context.serialize(src.getLastMove()));
-      jsonObject.addProperty("isGameOver", src.isGameOver());
-      return jsonObject;
-    }
-
-    @Override
-    public ChessGame deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
-      JsonObject jsonObject = json.getAsJsonObject();
-      ChessGame game = new ChessGame();
-      game.setBoard(context.deserialize(jsonObject.get("board"), ChessBoard.class));
-      game.setTeamTurn(ChessGame.TeamColor.valueOf(jsonObject.get("teamTurn").getAsString()));
-      if (jsonObject.has("lastMove") && !jsonObject.get("lastMove").isJsonNull()) {
-        ChessMove lastMove = context.deserialize(jsonObject.get("lastMove"), ChessMove.class);
-        game.setLastMove(lastMove);
-      }
-      if (jsonObject.has("isGameOver")) {
-        game.setGameOver(jsonObject.get("isGameOver").getAsBoolean());
-      }
-      return game;
-    }
+  private static String colorName(ChessGame.TeamColor color) {
+    return color == null ? null : color.name();
   }
 
-  private static class ChessBoardAdapter implements JsonSerializer<ChessBoard>, JsonDeserializer<ChessBoard> {
-    @Override
-    public JsonElement serialize(ChessBoard src, Type typeOfSrc, JsonSerializationContext context) {
-      JsonObject jsonObject = new JsonObject();
-      JsonObject boardState = new JsonObject();
-      for (Map.Entry<ChessPosition, ChessPiece> entry : src.getBoard().entrySet()) {
-        boardState.add(entry.getKey().toString(), context.serialize(entry.getValue()));
-      }
-      jsonObject.add("board", boardState);
-      return jsonObject;
-    }
-
-    @Override
-    public ChessBoard deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
-      JsonObject jsonObject = json.getAsJsonObject();
-      ChessBoard board = new ChessBoard();
-      JsonObject boardState = jsonObject.getAsJsonObject("board");
-      for (Map.Entry<String, JsonElement> entry : boardState.entrySet()) {
-        ChessPosition position = context.deserialize(new JsonPrimitive(entry.getKey()), ChessPosition.class);
-        ChessPiece piece = context.deserialize(entry.getValue(), ChessPiece.class);
-        board.addPiece(position, piece);
-      }
-      return board;
+  private static ChessGame.TeamColor engineColor(ResultSet rs) throws SQLException {
+    String color = rs.getString("engine_color");
+    try {
+      return color == null ? null : ChessGame.TeamColor.valueOf(color);
+    } catch (IllegalArgumentException e) {
+      throw new SQLException("Unknown engine color " + color + " for game " + rs.getInt("game_id"), e);
     }
   }
 
-  private static class ChessPositionAdapter implements JsonSerializer<ChessPosition>, JsonDeserializer<ChessPosition> {
-    @Override
-    public JsonElement serialize(ChessPosition src, Type typeOfSrc, JsonSerializationContext context) {
-      return new JsonPrimitive(src.toString());
-    }
-
-    @Override
-    public ChessPosition deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
-      String positionString = json.getAsString();
-      if (positionString.startsWith("ChessPosition{")) {
-        // Parse the string representation
-        String[] parts = positionString.substring(14, positionString.length() - 1).split(", ");
-        int row = Integer.parseInt(parts[0].split("=")[1]);
-        int col = Integer.parseInt(parts[1].split("=")[1]);
-        return new ChessPosition(row, col);
-      } else {
-        // Parse as "row,col" format
-        String[] parts = positionString.split(",");
-        return new ChessPosition(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
-      }
+  private static void replay(ChessGame game, ResultSet rs) throws SQLException {
+    try {
+      game.makeMove(ChessGameCodec.decodeMove(rs.getShort("move")));
+    } catch (InvalidMoveException | IllegalArgumentException e) {
+      throw new SQLException("Unable to replay ply " + rs.getInt("ply") + " of game " + rs.getInt("game_id")
+              + ": " + e.getMessage(), e);
     }
   }
 
-  private static class ChessPieceAdapter implements JsonSerializer<ChessPiece>, JsonDeserializer<ChessPiece> {
-    @Override
-    public JsonElement serialize(ChessPiece src, Type typeOfSrc, JsonSerializationContext context) {
-      JsonObject jsonObject = new JsonObject();
-      jsonObject.addProperty("pieceType", src.getPieceType().toString());
-      jsonObject.addProperty("teamColor", src.getTeamColor().toString());
-      jsonObject.addProperty("hasMoved", src.hasMoved());
-      return jsonObject;
-    }
-
-    @Override
-    public ChessPiece deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
-      JsonObject jsonObject = json.getAsJsonObject();
-      ChessPiece.PieceType pieceType = ChessPiece.PieceType.valueOf(jsonObject.get("pieceType").getAsString());
-      ChessGame.TeamColor teamColor = ChessGame.TeamColor.valueOf(jsonObject.get("teamColor").getAsString());
-      ChessPiece piece = new ChessPiece(teamColor, pieceType);
-      piece.setHasMoved(jsonObject.get("hasMoved").getAsBoolean());
-      return piece;
-    }
-  }
-
-  private static class ChessMoveAdapter implements JsonSerializer<ChessMove>, JsonDeserializer<ChessMove> {
-    @Override
-    public JsonElement serialize(ChessMove src, Type typeOfSrc, JsonSerializationContext context) {
-      JsonObject jsonObject = new JsonObject();
-      jsonObject.add("startPosition", context.serialize(src.getStartPosition()));
-      jsonObject.add("endPosition", context.serialize(src.getEndPosition()));
-      if (src.getPromotionPiece() != null) {
-        jsonObject.addProperty("promotionPiece", src.getPromotionPiece().toString());
-      }
-      return jsonObject;
-    }
-
-    @Override
-    public ChessMove deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
-      JsonObject jsonObject = json.getAsJsonObject();
-      ChessPosition startPosition = context.deserialize(jsonObject.get("startPosition"), ChessPosition.class);
-      ChessPosition endPosition = context.deserialize(jsonObject.get("endPosition"), ChessPosition.class);
-      ChessPiece.PieceType promotionPiece = null;
-      if (jsonObject.has("promotionPiece")) {
-        promotionPiece = ChessPiece.PieceType.valueOf(jsonObject.get("promotionPiece").getAsString());
-      }
-      return new ChessMove(startPosition, endPosition, promotionPiece);
+  private static ChessGame decodeGame(ResultSet rs) throws SQLException {
+    try {
+      return ChessGameCodec.decode(rs.getBytes("game_data"));
+    } catch (IllegalArgumentException e) {
+      throw new SQLException("Unreadable game " + rs.getInt("game_id") + ": " + e.getMessage(), e);
     }
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,114 @@
+package dataaccess;
+
+import chess.*;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import shared.ChessAdapters;
+
+import java.sql.*;
+
+/**
+ * Brings tables created by older versions up to date: games move from the JSON
+ * game_state column to the binary game_data column, and gain the snapshot_ply
+ * column used with the move log and the engine_color column of single-player games. Each step checks the columns first, so a run that
+ * stopped partway picks up where it left off.
+ */
+class SchemaMigration {
+  private static final int BATCH_SIZE = 100;
+
+  private static final Gson GSON = new GsonBuilder()
+          .registerTypeAdapter(ChessGame.class, new ChessAdapters.ChessGameAdapter())
+          .registerTypeAdapter(ChessBoard.class, new ChessAdapters.ChessBoardAdapter())
+          .registerTypeAdapter(ChessPosition.class, new ChessAdapters.ChessPositionAdapter())
+          .registerTypeAdapter(ChessPiece.class, new ChessAdapters.ChessPieceAdapter())
+          .registerTypeAdapter(ChessMove.class, new ChessAdapters.ChessMoveAdapter())
+          .create();
+
+  private SchemaMigration() {
+  }
+
+  static void run(Connection conn, String databaseName) throws SQLException {
+    migrateGameState(conn, databaseName);
+    if (!hasColumn(conn, databaseName, "snapshot_ply")) {
+      try (Statement stmt = conn.createStatement()) {
+        stmt.executeUpdate("ALTER TABLE games ADD COLUMN snapshot_ply INT NOT NULL DEFAULT 0");
+      }
+    }
+    if (!hasColumn(conn, databaseName, "engine_color")) {
+      try (Statement stmt = conn.createStatement()) {
+        stmt.executeUpdate("ALTER TABLE games ADD COLUMN engine_color VARCHAR(5) NULL");
+      }
+    }
+  }
+
+  /**
+   * Returns the number of games converted.
+   */
+  private static int migrateGameState(Connection conn, String databaseName) throws SQLException {
+    if (!hasColumn(conn, databaseName, "game_state")) {
+      return 0;
+    }
+    try (Statement stmt = conn.createStatement()) {
+      if (!hasColumn(conn, databaseName, "game_data")) {
+        stmt.executeUpdate("ALTER TABLE games ADD COLUMN game_data BLOB NULL");
+      }
+      int converted = convertRows(conn);
+      stmt.executeUpdate("ALTER TABLE games DROP COLUMN game_state");
+      stmt.executeUpdate("ALTER TABLE games MODIFY game_data BLOB NOT NULL");
+      return converted;
+    }
+  }
+
+  static byte[] convert(String json) {
+    try {
+      return ChessGameCodec.encode(GSON.fromJson(json, ChessGame.class));
+    } catch (JsonParseException | IllegalStateException | NullPointerException e) {
+      throw new IllegalArgumentException("Invalid game JSON: " + e.getMessage(), e);
+    }
+  }
+
+  private static int convertRows(Connection conn) throws SQLException {
+    String select = "SELECT game_id, game_state FROM games WHERE game_data IS NULL";
+    String update = "UPDATE games SET game_data = ? WHERE game_id = ?";
+    boolean autoCommit = conn.getAutoCommit();
+    conn.setAutoCommit(false);
+    int converted = 0;
+    try (PreparedStatement query = conn.prepareStatement(select);
+         PreparedStatement stmt = conn.prepareStatement(update);
+         ResultSet rs = query.executeQuery()) {
+      while (rs.next()) {
+        int gameID = rs.getInt("game_id");
+        try {
+          stmt.setBytes(1, convert(rs.getString("game_state")));
+        } catch (IllegalArgumentException e) {
+          throw new SQLException("Unable to migrate game " + gameID + ": " + e.getMessage(), e);
+        }
+        stmt.setInt(2, gameID);
+        stmt.addBatch();
+        if (++converted % BATCH_SIZE == 0) {
+          stmt.executeBatch();
+        }
+      }
+      stmt.executeBatch();
+      conn.commit();
+      return converted;
+    } catch (SQLException e) {
+      conn.rollback();
+      throw e;
+    } finally {
+      conn.setAutoCommit(autoCommit);
+    }
+  }
+
+  private static boolean hasColumn(Connection conn, String databaseName, String column) throws SQLException {
+    String sql = "SELECT 1 FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = ? AND TABLE_NAME = 'games' AND COLUMN_NAME = ?";
+    try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+      stmt.setString(1, databaseName);
+      stmt.setString(2, column);
+      try (ResultSet rs = stmt.executeQuery()) {
+        return rs.next();
+      }
+    }
+  }
+}
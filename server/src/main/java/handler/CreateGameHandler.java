@@ -1,5 +1,6 @@
 package handler;
 
+import chess.ChessGame;
 import service.GameService;
 import spark.Request;
 import spark.Response;
@@ -17,7 +18,8 @@ public class CreateGameHandler extends BaseHandler {
     String authToken = req.headers("Authorization");
     var createGameRequest = deserialize(req.body(), CreateGameRequest.class);
     try {
-      int gameID = gameService.createGame(authToken, createGameRequest.gameName);
+      int gameID = gameService.createGame(authToken, createGameRequest.gameName,
+              createGameRequest.engineColor);
       res.status(200);
       return serialize(new CreateGameResult(gameID));
     } catch (Exception e) {
@@ -26,7 +28,7 @@ public class CreateGameHandler extends BaseHandler {
     }
   }
 
-  private record CreateGameRequest(String gameName) {}
+  private record CreateGameRequest(String gameName, ChessGame.TeamColor engineColor) {}
   private record CreateGameResult(int gameID) {}
   private record ErrorResult(String message) {}
 }
\ No newline at end of file
@@ -25,7 +25,8 @@ public class JoinGameHandler extends BaseHandler {
         return serialize(new ErrorResult("Error: bad request"));
       }
 
-      gameService.joinGame(authToken, joinRequest.gameID(), joinRequest.playerColor());
+      gameService.joinGame(authToken, joinRequest.gameID(), joinRequest.playerColor(),
+              joinRequest.againstEngine());
       res.status(200);
       return "{}";
     } catch (DataAccessException e) {
@@ -42,6 +43,6 @@ public class JoinGameHandler extends BaseHandler {
     }
   }
 
-  private record JoinGameRequest(int gameID, ChessGame.TeamColor playerColor) {}
+  private record JoinGameRequest(int gameID, ChessGame.TeamColor playerColor, boolean againstEngine) {}
   private record ErrorResult(String message) {}
 }
\ No newline at end of file
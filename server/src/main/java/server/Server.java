@@ -6,6 +6,13 @@ import dataaccess.*;
 import service.*;
 import model.*;
 import chess.*;
+import chess.engine.Engine;
+import chess.engine.EngineScheduler;
+import chess.engine.OpeningBook;
+import chess.engine.TranspositionTable;
+import chess.tablebase.Tablebases;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Collection;
 
 public class Server {
@@ -13,11 +20,44 @@ public class Server {
     private final GameService gameService;
     private final Gson gson = new Gson();
     private final WebSocketHandler webSocketHandler;
+    private final CachingDataAccess dataAccess;
 
     public Server() {
-        DataAccess dataAccess = new MySqlDataAccess();
-        userService = new UserService(dataAccess);
-        gameService = new GameService(dataAccess);
+        DataAccess store = new MySqlDataAccess(
+                Integer.getInteger("chess.db.snapshotInterval", MySqlDataAccess.DEFAULT_SNAPSHOT_INTERVAL));
+        dataAccess = new CachingDataAccess(store,
+                Long.getLong("chess.db.flushIntervalMillis", CachingDataAccess.DEFAULT_FLUSH_INTERVAL_MILLIS),
+                Integer.getInteger("chess.db.flushThreshold", CachingDataAccess.DEFAULT_DIRTY_THRESHOLD));
+        // Queued game writes still reach the database if the process is stopped
+        Runtime.getRuntime().addShutdownHook(new Thread(dataAccess::close, "game-cache-shutdown"));
+        DataAccess cached = new AuthCachingDataAccess(dataAccess,
+                Long.getLong("chess.auth.ttlMillis", AuthCachingDataAccess.DEFAULT_TTL_MILLIS),
+                Long.getLong("chess.auth.negativeTtlMillis", AuthCachingDataAccess.DEFAULT_NEGATIVE_TTL_MILLIS),
+                Integer.getInteger("chess.auth.maxEntries", AuthCachingDataAccess.DEFAULT_MAX_ENTRIES));
+        userService = new UserService(cached);
+        long engineTimeMillis = Long.getLong("chess.engine.timeMillis", GameService.DEFAULT_ENGINE_TIME_MILLIS);
+        int hashMegabytes = Integer.getInteger("chess.engine.hashMegabytes", Engine.DEFAULT_HASH_MEGABYTES);
+        // Leave half the cores to human games by default
+        int engineThreads = Integer.getInteger("chess.engine.threads",
+                Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+        Engine engine = new Engine(new TranspositionTable(hashMegabytes), new EngineScheduler(engineThreads));
+        String bookPath = System.getProperty("chess.engine.book");
+        if (bookPath != null) {
+            try {
+                engine.setOpeningBook(OpeningBook.open(Path.of(bookPath)));
+            } catch (IOException e) {
+                System.err.println("Failed to load opening book: " + e.getMessage());
+            }
+        }
+        String tablebasePath = System.getProperty("chess.tablebases");
+        if (tablebasePath != null) {
+            try {
+                Tablebases.install(Tablebases.open(Path.of(tablebasePath)));
+            } catch (IOException e) {
+                System.err.println("Failed to load tablebases: " + e.getMessage());
+            }
+        }
+        gameService = new GameService(cached, engine, engineTimeMillis);
         webSocketHandler = new WebSocketHandler(gameService);
     }
 
@@ -213,7 +253,7 @@ public class Server {
 
     private Object clear(Request req, Response res) {
         try {
-            userService.clearAll();
+            gameService.clear();
             res.status(200);
             return "{}";
         } catch (Exception e) {
@@ -230,6 +270,7 @@ public class Server {
     public void stop() {
         Spark.stop();
         Spark.awaitStop();
+        dataAccess.close();
     }
 
     private record LoginRequest(String username, String password) {}
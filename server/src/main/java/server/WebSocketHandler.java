@@ -1,6 +1,7 @@
 package server;
 
 import chess.*;
+import chess.engine.TranspositionTable;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import org.eclipse.jetty.websocket.api.Session;
@@ -8,7 +9,6 @@ import org.eclipse.jetty.websocket.api.annotations.*;
 import service.GameService;
 import websocket.commands.UserGameCommand;
 import websocket.messages.ServerMessage;
-import model.GameData;
 
 import java.io.IOException;
 import java.util.Map;
@@ -38,6 +38,8 @@ public class WebSocketHandler {
     for (Map.Entry<Integer, Map<Session, String>> entry : GAME_SESSIONS.entrySet()) {
       if (entry.getValue().containsKey(session)) {
         String authToken = entry.getValue().remove(session);
+        reportActiveGames();
+        releaseIfUnwatched(entry.getKey());
         notifyOtherPlayers(entry.getKey(), session, gameService.getUsernameFromAuthToken(authToken) + " has left the game.");
         break;
       }
@@ -76,6 +78,9 @@ public class WebSocketHandler {
         case RESIGN:
           handleResign(session, command);
           break;
+        case ENGINE_MOVE:
+          handleEngineMove(session, command);
+          break;
         default:
           sendErrorMessage(session, "Error: unknown command");
       }
@@ -89,6 +94,7 @@ public class WebSocketHandler {
     try {
       if (gameService.isValidGame(command.getGameID()) && gameService.isAuthorized(command.getAuthToken())) {
         GAME_SESSIONS.computeIfAbsent(command.getGameID(), k -> new ConcurrentHashMap<>()).put(session, command.getAuthToken());
+        reportActiveGames();
         String username = gameService.getUsernameFromAuthToken(command.getAuthToken());
         notifyOtherPlayers(command.getGameID(), session, username + " has joined the game.");
         sendGameState(session, command.getAuthToken(), command.getGameID());
@@ -108,8 +114,7 @@ public class WebSocketHandler {
         throw new IllegalArgumentException("Move is missing from the command");
       }
 
-      GameData gameData = gameService.getGameState(command.getAuthToken(), command.getGameID());
-      if (gameData.game().isGameOver()) {
+      if (gameService.getSnapshot(command.getAuthToken(), command.getGameID()).isGameOver()) {
         sendErrorMessage(session, "Error: game is already over");
         return;
       }
@@ -117,28 +122,53 @@ public class WebSocketHandler {
       gameService.makeMove(command.getAuthToken(), command.getGameID(), move);
       String username = gameService.getUsernameFromAuthToken(command.getAuthToken());
 
-      sendGameStateToAll(command.getGameID());
+      sendGameStateToAll(command);
       notifyOtherPlayers(command.getGameID(), session, username + " made a move: " + formatMove(move));
 
-      // Check for checkmate or check
-      gameData = gameService.getGameState(command.getAuthToken(), command.getGameID());
-      ChessGame chessGame = gameData.game();
-      if (chessGame.isInCheckmate(chessGame.getTeamTurn())) {
-        notifyAllPlayers(command.getGameID(), "Checkmate! Game over.");
-      } else if (chessGame.isInCheck(chessGame.getTeamTurn())) {
-        notifyAllPlayers(command.getGameID(), "Check!");
-      }
+      notifyGameStatus(command);
     } catch (Exception e) {
       LOGGER.severe("Error in handleMakeMove: " + e.getMessage());
       sendErrorMessage(session, "Error: " + e.getMessage());
     }
   }
 
+  private void handleEngineMove(Session session, UserGameCommand command) throws Exception {
+    try {
+      ChessMove move = gameService.makeEngineMove(command.getAuthToken(), command.getGameID());
+      TranspositionTable table = gameService.getEngine().getTranspositionTable();
+      LOGGER.fine(() -> String.format("Engine hash table: %d probes, %.1f%% hits",
+              table.getProbes(), table.getHitRate() * 100));
+
+      sendGameStateToAll(command);
+      notifyAllPlayers(command.getGameID(), "The engine made a move: " + formatMove(move));
+      notifyGameStatus(command);
+    } catch (Exception e) {
+      LOGGER.severe("Error in handleEngineMove: " + e.getMessage());
+      sendErrorMessage(session, "Error: " + e.getMessage());
+    }
+  }
+
+  // Check for checkmate, stalemate or check
+  private void notifyGameStatus(UserGameCommand command) throws Exception {
+    switch (gameService.getSnapshot(command.getAuthToken(), command.getGameID()).getStatus()) {
+      case CHECKMATE -> notifyAllPlayers(command.getGameID(), "Checkmate! Game over.");
+      case STALEMATE -> notifyAllPlayers(command.getGameID(), "Stalemate! Game over.");
+      case THREEFOLD_REPETITION -> notifyAllPlayers(command.getGameID(), "Draw by threefold repetition. Game over.");
+      case FIFTY_MOVE_RULE -> notifyAllPlayers(command.getGameID(), "Draw by the fifty-move rule. Game over.");
+      case TABLEBASE_DRAW -> notifyAllPlayers(command.getGameID(), "Draw: the ending cannot be won. Game over.");
+      case CHECK -> notifyAllPlayers(command.getGameID(), "Check!");
+      default -> {
+      }
+    }
+  }
+
   private void handleLeave(Session session, UserGameCommand command) throws Exception {
     try {
       gameService.leaveGame(command.getAuthToken(), command.getGameID());
       String username = gameService.getUsernameFromAuthToken(command.getAuthToken());
       GAME_SESSIONS.get(command.getGameID()).remove(session);
+      reportActiveGames();
+      releaseIfUnwatched(command.getGameID());
       notifyOtherPlayers(command.getGameID(), session, username + " has left the game.");
     } catch (Exception e) {
       LOGGER.severe("Error in handleLeave: " + e.getMessage());
@@ -148,8 +178,7 @@ public class WebSocketHandler {
 
   private void handleResign(Session session, UserGameCommand command) throws Exception {
     try {
-      GameData gameData = gameService.getGameState(command.getAuthToken(), command.getGameID());
-      if (gameData.game().isGameOver()) {
+      if (gameService.getSnapshot(command.getAuthToken(), command.getGameID()).isGameOver()) {
         sendErrorMessage(session, "Error: game is already over");
         return;
       }
@@ -163,21 +192,45 @@ public class WebSocketHandler {
     }
   }
 
-  private void sendGameStateToAll(int gameId) {
-    for (Map.Entry<Session, String> entry : GAME_SESSIONS.get(gameId).entrySet()) {
+  private void reportActiveGames() {
+    int activeGames = 0;
+    for (Map<Session, String> sessions : GAME_SESSIONS.values()) {
+      if (!sessions.isEmpty()) {
+        activeGames++;
+      }
+    }
+    gameService.reportActiveGames(activeGames);
+  }
+
+  private void releaseIfUnwatched(int gameId) {
+    Map<Session, String> sessions = GAME_SESSIONS.get(gameId);
+    if (sessions == null || sessions.isEmpty()) {
+      gameService.releaseGame(gameId);
+    }
+  }
+
+  // Every session gets the same message, so it is serialized once
+  private void sendGameStateToAll(UserGameCommand command) throws Exception {
+    String jsonMessage = loadGameMessage(gameService.getSnapshot(command.getAuthToken(), command.getGameID()));
+    for (Session session : GAME_SESSIONS.get(command.getGameID()).keySet()) {
       try {
-        sendGameState(entry.getKey(), entry.getValue(), gameId);
-      } catch (Exception e) {
+        session.getRemote().sendString(jsonMessage);
+      } catch (IOException e) {
         LOGGER.severe("Error sending game state: " + e.getMessage());
       }
     }
   }
 
   private void sendGameState(Session session, String authToken, int gameId) throws Exception {
-    ServerMessage message = new ServerMessage(ServerMessage.ServerMessageType.LOAD_GAME);
-    GameData gameData = gameService.getGameState(authToken, gameId);
-    message.setGame(gameData.game());
-    session.getRemote().sendString(gson.toJson(message));
+    session.getRemote().sendString(loadGameMessage(gameService.getSnapshot(authToken, gameId)));
+  }
+
+  // The snapshot's game is written as it stands rather than copied into the message
+  private String loadGameMessage(BoardSnapshot snapshot) {
+    JsonObject message = gson.toJsonTree(new ServerMessage(ServerMessage.ServerMessageType.LOAD_GAME))
+            .getAsJsonObject();
+    message.add("game", snapshot.toJsonTree(gson));
+    return gson.toJson(message);
   }
 
   private void notifyOtherPlayers(int gameId, Session excludeSession, String notificationMessage) {
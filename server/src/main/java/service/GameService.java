@@ -1,18 +1,60 @@
 package service;
 
+import chess.BoardSnapshot;
 import chess.ChessGame;
 import chess.ChessMove;
 import chess.InvalidMoveException;
+import chess.engine.Engine;
+import chess.engine.SearchLimits;
 import dataaccess.*;
 import model.*;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class GameService {
+  public static final long DEFAULT_ENGINE_TIME_MILLIS = 1000;
+  private static final int GAME_LOCKS = 64;
+
   private final DataAccess dataAccess;
+  private final Engine engine;
+  private final long engineTimeMillis;
+  // Latest snapshot of each game in progress that someone is watching, replaced after
+  // every change to its board; anything missing is rebuilt from the data store
+  private final Map<Integer, BoardSnapshot> snapshots = new ConcurrentHashMap<>();
+  // Changes to one game are made one at a time, so two of them never start from the
+  // same state; games share GAME_LOCKS locks between them
+  private final Object[] gameLocks = new Object[GAME_LOCKS];
 
   public GameService(DataAccess dataAccess) {
+    this(dataAccess, new Engine(), DEFAULT_ENGINE_TIME_MILLIS);
+  }
+
+  public GameService(DataAccess dataAccess, Engine engine, long engineTimeMillis) {
+    if (engineTimeMillis <= 0) {
+      throw new IllegalArgumentException("Engine time budget must be positive");
+    }
     this.dataAccess = dataAccess;
+    this.engine = engine;
+    this.engineTimeMillis = engineTimeMillis;
+    for (int i = 0; i < gameLocks.length; i++) {
+      gameLocks[i] = new Object();
+    }
+  }
+
+  public Engine getEngine() {
+    return engine;
+  }
+
+  /**
+   * Tells the engine how many games are being played, so it can share its threads
+   * between them.
+   */
+  public void reportActiveGames(int activeGames) {
+    engine.getScheduler().setActiveGames(activeGames);
   }
 
   public boolean isValidGame(int gameId) throws DataAccessException {
@@ -28,7 +70,12 @@ public class GameService {
     if (auth == null) {
       throw new DataAccessException("Error: unauthorized");
     }
+    synchronized (lockFor(gameId)) {
+      resignGame(auth, gameId);
+    }
+  }
 
+  private void resignGame(AuthData auth, int gameId) throws DataAccessException {
     GameData game = dataAccess.getGame(gameId);
     if (game == null) {
       throw new DataAccessException("Error: game not found");
@@ -39,22 +86,26 @@ public class GameService {
       throw new DataAccessException("Error: not a player in this game");
     }
 
-    ChessGame chessGame = game.game();
+    ChessGame chessGame = game.game().copy();
     if (chessGame.isGameOver()) {
       throw new DataAccessException("Error: game is already over");
     }
 
     chessGame.setGameOver(true);
+    chessGame.getGameStatus();
 
     GameData updatedGame = new GameData(
             game.gameID(),
             game.whiteUsername(),
             game.blackUsername(),
             game.gameName(),
-            chessGame
+            chessGame,
+            game.winner(),
+            game.engineColor()
     );
 
     dataAccess.updateGame(updatedGame);
+    publish(gameId, BoardSnapshot.of(chessGame));
   }
 
   public Collection<GameData> listGames(String authToken) throws DataAccessException {
@@ -65,6 +116,15 @@ public class GameService {
   }
 
   public int createGame(String authToken, String gameName) throws DataAccessException {
+    return createGame(authToken, gameName, null);
+  }
+
+  /**
+   * Creates a game in which the engine takes the {@code engineColor} seat, or a game for
+   * two people when that is null.
+   */
+  public int createGame(String authToken, String gameName, ChessGame.TeamColor engineColor)
+          throws DataAccessException {
     if (dataAccess.getAuth(authToken) == null) {
       throw new DataAccessException("Error: unauthorized");
     }
@@ -73,52 +133,96 @@ public class GameService {
     }
     int gameID = Math.abs(UUID.randomUUID().hashCode());
     ChessGame newChessGame = new ChessGame();
-    GameData newGame = new GameData(gameID, null, null, gameName, newChessGame);
+    newChessGame.getGameStatus();
+    GameData newGame = new GameData(gameID, null, null, gameName, newChessGame, null, engineColor);
     dataAccess.createGame(newGame);
     return gameID;
   }
 
   public void joinGame(String authToken, int gameID, ChessGame.TeamColor playerColor) throws DataAccessException {
+    joinGame(authToken, gameID, playerColor, false);
+  }
+
+  /**
+   * Takes the {@code playerColor} seat. With {@code againstEngine} the engine takes the
+   * other seat, which must still be empty; the engine's seat can never be joined.
+   */
+  public void joinGame(String authToken, int gameID, ChessGame.TeamColor playerColor, boolean againstEngine)
+          throws DataAccessException {
     AuthData auth = dataAccess.getAuth(authToken);
     if (auth == null) {
       throw new DataAccessException("Error: unauthorized");
     }
+    synchronized (lockFor(gameID)) {
+      joinGame(auth, gameID, playerColor, againstEngine);
+    }
+  }
 
+  private void joinGame(AuthData auth, int gameID, ChessGame.TeamColor playerColor, boolean againstEngine)
+          throws DataAccessException {
     GameData game = dataAccess.getGame(gameID);
-    if (game == null) {
+    if (game == null || playerColor == null) {
       throw new DataAccessException("Error: bad request");
     }
+    if (isTaken(game, playerColor)) {
+      throw new DataAccessException("Error: already taken");
+    }
 
-    String username = auth.username();
-    if (playerColor == ChessGame.TeamColor.WHITE) {
-      if (game.whiteUsername() != null && !game.whiteUsername().isEmpty()) {
+    ChessGame.TeamColor engineColor = game.engineColor();
+    if (againstEngine) {
+      ChessGame.TeamColor opponent = opposite(playerColor);
+      if (engineColor == null && isTaken(game, opponent)) {
         throw new DataAccessException("Error: already taken");
       }
-      game = new GameData(game.gameID(), username, game.blackUsername(), game.gameName(), game.game());
-    } else if (playerColor == ChessGame.TeamColor.BLACK) {
-      if (game.blackUsername() != null && !game.blackUsername().isEmpty()) {
-        throw new DataAccessException("Error: already taken");
+      if (engineColor != null && engineColor != opponent) {
+        throw new DataAccessException("Error: bad request");
       }
-      game = new GameData(game.gameID(), game.whiteUsername(), username, game.gameName(), game.game());
+      engineColor = opponent;
+    }
+
+    String username = auth.username();
+    if (playerColor == ChessGame.TeamColor.WHITE) {
+      game = new GameData(game.gameID(), username, game.blackUsername(), game.gameName(), game.game(),
+              game.winner(), engineColor);
     } else {
-      throw new DataAccessException("Error: bad request");
+      game = new GameData(game.gameID(), game.whiteUsername(), username, game.gameName(), game.game(),
+              game.winner(), engineColor);
     }
 
     dataAccess.updateGame(game);
   }
 
+  // A seat is taken once someone has joined it, and the engine's seat always is
+  private static boolean isTaken(GameData game, ChessGame.TeamColor color) {
+    if (color == game.engineColor()) {
+      return true;
+    }
+    String username = color == ChessGame.TeamColor.WHITE ? game.whiteUsername() : game.blackUsername();
+    return username != null && !username.isEmpty();
+  }
+
+  private static ChessGame.TeamColor opposite(ChessGame.TeamColor color) {
+    return color == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+  }
+
   public void makeMove(String authToken, int gameId, ChessMove move) throws DataAccessException {
     AuthData auth = dataAccess.getAuth(authToken);
     if (auth == null) {
       throw new DataAccessException("Error: unauthorized");
     }
+    synchronized (lockFor(gameId)) {
+      makeMove(auth, gameId, move);
+    }
+  }
 
+  private void makeMove(AuthData auth, int gameId, ChessMove move) throws DataAccessException {
     GameData game = dataAccess.getGame(gameId);
     if (game == null) {
       throw new DataAccessException("Error: game not found");
     }
 
-    ChessGame chessGame = game.game();
+    // Moves are made on a copy, so a game someone else already holds never changes
+    ChessGame chessGame = game.game().copy();
     String currentPlayer = chessGame.getTeamTurn() == ChessGame.TeamColor.WHITE ? game.whiteUsername() : game.blackUsername();
 
     if (!currentPlayer.equals(auth.username())) {
@@ -131,21 +235,89 @@ public class GameService {
 
     try {
       chessGame.makeMove(move);
+      // Worked out before the game is shared, so readers never have to
+      chessGame.getGameStatus();
 
       GameData updatedGame = new GameData(
               game.gameID(),
               game.whiteUsername(),
               game.blackUsername(),
               game.gameName(),
-              chessGame
+              chessGame,
+              game.winner(),
+              game.engineColor()
       );
 
-      dataAccess.updateGame(updatedGame);
+      dataAccess.appendMove(updatedGame, move);
+      publish(gameId, BoardSnapshot.of(chessGame));
     } catch (InvalidMoveException e) {
       throw new DataAccessException("Error: invalid move - " + e.getMessage());
     }
   }
 
+  /**
+   * Lets the engine play its seat in a single-player game, for the player in the other
+   * seat. The search is capped at the configured time budget.
+   */
+  public ChessMove makeEngineMove(String authToken, int gameId) throws DataAccessException {
+    AuthData auth = dataAccess.getAuth(authToken);
+    if (auth == null) {
+      throw new DataAccessException("Error: unauthorized");
+    }
+
+    GameData game = dataAccess.getGame(gameId);
+    if (game == null) {
+      throw new DataAccessException("Error: game not found");
+    }
+
+    ChessGame.TeamColor engineColor = game.engineColor();
+    if (engineColor == null) {
+      throw new DataAccessException("Error: not a single-player game");
+    }
+    String player = engineColor == ChessGame.TeamColor.WHITE ? game.blackUsername() : game.whiteUsername();
+    if (!auth.username().equals(player)) {
+      throw new DataAccessException("Error: not a player in this game");
+    }
+
+    ChessGame chessGame = game.game().copy();
+    if (chessGame.isGameOver()) {
+      throw new DataAccessException("Error: game is already over");
+    }
+    if (chessGame.getTeamTurn() != engineColor) {
+      throw new DataAccessException("Error: not the engine's turn");
+    }
+
+    // The search runs without the game's lock, so the game is checked again afterwards
+    ChessMove move = engine.chooseMove(chessGame, SearchLimits.ofTime(engineTimeMillis));
+    synchronized (lockFor(gameId)) {
+      GameData latest = dataAccess.getGame(gameId);
+      if (latest == null || latest.game().getPly() != chessGame.getPly() || latest.game().isMarkedGameOver()
+              || latest.engineColor() != engineColor
+              || !Objects.equals(latest.whiteUsername(), game.whiteUsername())
+              || !Objects.equals(latest.blackUsername(), game.blackUsername())) {
+        throw new DataAccessException("Error: the game changed while the engine was thinking");
+      }
+      try {
+        chessGame.makeMove(move);
+      } catch (InvalidMoveException e) {
+        throw new DataAccessException("Error: invalid engine move - " + e.getMessage());
+      }
+      chessGame.getGameStatus();
+
+      dataAccess.appendMove(new GameData(
+              latest.gameID(),
+              latest.whiteUsername(),
+              latest.blackUsername(),
+              latest.gameName(),
+              chessGame,
+              latest.winner(),
+              engineColor
+      ), move);
+      publish(gameId, BoardSnapshot.of(chessGame));
+    }
+    return move;
+  }
+
   public GameData getGameState(String authToken, int gameId) throws DataAccessException {
     AuthData auth = dataAccess.getAuth(authToken);
     if (auth == null) {
@@ -160,12 +332,78 @@ public class GameService {
     return game;
   }
 
+  /**
+   * The game as it stood after its last change. Snapshots never change, so callers
+   * can read one on any thread while moves are being made.
+   */
+  public BoardSnapshot getSnapshot(String authToken, int gameId) throws DataAccessException {
+    if (dataAccess.getAuth(authToken) == null) {
+      throw new DataAccessException("Error: unauthorized");
+    }
+
+    BoardSnapshot snapshot = snapshots.get(gameId);
+    if (snapshot != null) {
+      return snapshot;
+    }
+    // Under the game's lock, so no change can be published between the read and this one
+    synchronized (lockFor(gameId)) {
+      GameData game = dataAccess.getGame(gameId);
+      if (game == null) {
+        throw new DataAccessException("Error: game not found");
+      }
+      BoardSnapshot built = BoardSnapshot.of(game.game());
+      publish(gameId, built);
+      return built;
+    }
+  }
+
+  /**
+   * Forgets the game's snapshot, once no one is watching the game any more.
+   */
+  public void releaseGame(int gameId) {
+    snapshots.remove(gameId);
+  }
+
+  public void clear() throws DataAccessException {
+    dataAccess.clear();
+    snapshots.clear();
+  }
+
+  // Keeps whichever snapshot is further into the game; finished games are not kept,
+  // as they no longer change
+  private void publish(int gameId, BoardSnapshot snapshot) {
+    snapshots.compute(gameId, (id, current) -> {
+      if (current != null && current.getPly() > snapshot.getPly()) {
+        return current;
+      }
+      return snapshot.isGameOver() ? null : snapshot;
+    });
+  }
+
+  /**
+   * Every move played in the game, in order.
+   */
+  public List<ChessMove> getMoveHistory(String authToken, int gameId) throws DataAccessException {
+    if (dataAccess.getAuth(authToken) == null) {
+      throw new DataAccessException("Error: unauthorized");
+    }
+    if (dataAccess.getGame(gameId) == null) {
+      throw new DataAccessException("Error: game not found");
+    }
+    return dataAccess.getMoves(gameId);
+  }
+
   public void leaveGame(String authToken, int gameId) throws DataAccessException {
     AuthData auth = dataAccess.getAuth(authToken);
     if (auth == null) {
       throw new DataAccessException("Error: unauthorized");
     }
+    synchronized (lockFor(gameId)) {
+      leaveGame(auth, gameId);
+    }
+  }
 
+  private void leaveGame(AuthData auth, int gameId) throws DataAccessException {
     GameData game = dataAccess.getGame(gameId);
     if (game == null) {
       throw new DataAccessException("Error: game not found");
@@ -173,14 +411,20 @@ public class GameService {
 
     String username = auth.username();
     if (username.equals(game.whiteUsername())) {
-      game = new GameData(game.gameID(), null, game.blackUsername(), game.gameName(), game.game());
+      game = new GameData(game.gameID(), null, game.blackUsername(), game.gameName(), game.game(),
+              game.winner(), game.engineColor());
     } else if (username.equals(game.blackUsername())) {
-      game = new GameData(game.gameID(), game.whiteUsername(), null, game.gameName(), game.game());
+      game = new GameData(game.gameID(), game.whiteUsername(), null, game.gameName(), game.game(),
+              game.winner(), game.engineColor());
     }
 
     dataAccess.updateGame(game);
   }
 
+  private Object lockFor(int gameId) {
+    return gameLocks[Math.floorMod(gameId, gameLocks.length)];
+  }
+
   public String getUsernameFromAuthToken(String authToken) throws DataAccessException {
     AuthData authData = dataAccess.getAuth(authToken);
     if (authData == null) {
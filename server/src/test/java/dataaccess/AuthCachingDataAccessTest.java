@@ -0,0 +1,78 @@
+package dataaccess;
+
+import model.AuthData;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuthCachingDataAccessTest {
+  private final CountingDataAccess store = new CountingDataAccess();
+  private long now;
+  private final AuthCachingDataAccess cache = new AuthCachingDataAccess(store, 1000, 100, 2, () -> now);
+
+  @Test
+  void servesTokensFromMemoryUntilTheyExpire() throws DataAccessException {
+    store.createAuth(new AuthData("token", "user"));
+    assertEquals("user", cache.getAuth("token").username());
+    assertEquals("user", cache.getAuth("token").username());
+    assertEquals(1, store.lookups);
+    assertEquals(1, cache.getHitCount());
+
+    now += TimeUnit.MILLISECONDS.toNanos(1000);
+    assertEquals("user", cache.getAuth("token").username());
+    assertEquals(2, store.lookups);
+  }
+
+  @Test
+  void remembersUnknownTokensBriefly() throws DataAccessException {
+    assertNull(cache.getAuth("bad"));
+    assertNull(cache.getAuth("bad"));
+    assertEquals(1, store.lookups);
+    assertEquals(1, cache.getNegativeHitCount());
+
+    now += TimeUnit.MILLISECONDS.toNanos(100);
+    assertNull(cache.getAuth("bad"));
+    assertEquals(2, store.lookups);
+
+    cache.createAuth(new AuthData("bad", "user"));
+    assertEquals("user", cache.getAuth("bad").username());
+    assertEquals(2, store.lookups);
+  }
+
+  @Test
+  void deleteAuthInvalidatesAtOnce() throws DataAccessException {
+    cache.createAuth(new AuthData("token", "user"));
+    assertNotNull(cache.getAuth("token"));
+
+    cache.deleteAuth("token");
+    assertNull(cache.getAuth("token"));
+    assertNull(store.getAuth("token"));
+  }
+
+  @Test
+  void dropsTheLeastRecentlyUsedToken() throws DataAccessException {
+    cache.createAuth(new AuthData("a", "userA"));
+    cache.createAuth(new AuthData("b", "userB"));
+    cache.getAuth("a");
+    cache.createAuth(new AuthData("c", "userC"));
+    assertEquals(2, cache.size());
+
+    cache.getAuth("a");
+    cache.getAuth("c");
+    assertEquals(0, store.lookups);
+    cache.getAuth("b");
+    assertEquals(1, store.lookups);
+  }
+
+  private static class CountingDataAccess extends MemoryDataAccess {
+    private int lookups;
+
+    @Override
+    public AuthData getAuth(String authToken) throws DataAccessException {
+      lookups++;
+      return super.getAuth(authToken);
+    }
+  }
+}
@@ -0,0 +1,190 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import model.GameData;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingDataAccessTest {
+  private static final ChessMove E4 = ChessMove.of(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null);
+  private static final ChessMove E5 = ChessMove.of(ChessPosition.of(7, 5), ChessPosition.of(5, 5), null);
+  private static final ChessMove D4 = ChessMove.of(ChessPosition.of(2, 4), ChessPosition.of(4, 4), null);
+
+  private final CountingDataAccess store = new CountingDataAccess();
+
+  @Test
+  void coalescesUpdatesAndServesReadsFromMemory() throws DataAccessException {
+    CachingDataAccess cache = new CachingDataAccess(store, 1000, 100, false);
+    cache.createGame(new GameData(1, null, null, "Game", new ChessGame()));
+    cache.updateGame(new GameData(1, "white", null, "Game", new ChessGame()));
+    cache.updateGame(new GameData(1, "white", "black", "Game", new ChessGame()));
+
+    assertEquals(0, store.updates);
+    assertEquals("black", cache.getGame(1).blackUsername());
+    assertEquals("black", cache.listGames().iterator().next().blackUsername());
+    assertEquals(1, cache.getDirtyCount());
+
+    cache.flush();
+    assertEquals(1, store.updates);
+    assertEquals(0, cache.getDirtyCount());
+    assertEquals(1, store.reads);
+    assertEquals("black", store.getGame(1).blackUsername());
+  }
+
+  @Test
+  void writesMovesInOrder() throws Exception {
+    CachingDataAccess cache = new CachingDataAccess(store, 1000, 100, false);
+    cache.createGame(new GameData(1, "white", "black", "Game", new ChessGame()));
+    GameData afterE4 = play(cache.getGame(1), E4);
+    cache.appendMove(afterE4, E4);
+    GameData afterE5 = play(afterE4, E5);
+    cache.appendMove(afterE5, E5);
+
+    assertEquals(List.of(E4, E5), cache.getMoves(1));
+    assertTrue(store.getMoves(1).isEmpty());
+    assertEquals(afterE5.game().toFen(), cache.getGame(1).game().toFen());
+
+    cache.flush();
+    assertEquals(List.of(E4, E5), store.getMoves(1));
+    assertEquals(afterE5.game().toFen(), store.getGame(1).game().toFen());
+  }
+
+  @Test
+  void writesFinishedGamesStraightAway() throws DataAccessException {
+    CachingDataAccess cache = new CachingDataAccess(store, 1000, 100, false);
+    cache.createGame(new GameData(1, "white", "black", "Game", new ChessGame()));
+    ChessGame resigned = new ChessGame();
+    resigned.setGameOver(true);
+    cache.updateGame(new GameData(1, "white", "black", "Game", resigned));
+
+    assertEquals(1, store.updates);
+    assertTrue(store.getGame(1).game().isGameOver());
+  }
+
+  @Test
+  void keepsFailedWritesForTheNextFlush() throws Exception {
+    CachingDataAccess cache = new CachingDataAccess(store, 1000, 100, false);
+    cache.createGame(new GameData(1, "white", "black", "Game", new ChessGame()));
+    GameData afterE4 = play(cache.getGame(1), E4);
+    cache.appendMove(afterE4, E4);
+    cache.updateGame(new GameData(1, "white", "black", "Renamed", afterE4.game()));
+
+    store.failing = true;
+    assertThrows(DataAccessException.class, cache::flush);
+    assertEquals(2, cache.getDirtyCount());
+
+    store.failing = false;
+    cache.flush();
+    assertEquals(List.of(E4), store.getMoves(1));
+    assertEquals("Renamed", store.getGame(1).gameName());
+    assertEquals(0, cache.getDirtyCount());
+  }
+
+  @Test
+  void rejectsMovesMadeFromAnOlderState() throws Exception {
+    CachingDataAccess cache = new CachingDataAccess(store, 1000, 100, false);
+    cache.createGame(new GameData(1, "white", "black", "Game", new ChessGame()));
+    GameData start = cache.getGame(1);
+    cache.appendMove(play(start, E4), E4);
+
+    assertThrows(DataAccessException.class, () -> cache.appendMove(play(start, D4), D4));
+    assertEquals(List.of(E4), cache.getMoves(1));
+    assertEquals(1, cache.getDirtyCount());
+  }
+
+  @Test
+  void dropsWritesTheDatabaseRejects() throws Exception {
+    CachingDataAccess cache = new CachingDataAccess(store, 1000, 100, false);
+    cache.createGame(new GameData(1, "white", "black", "Game", new ChessGame()));
+    GameData afterE4 = play(cache.getGame(1), E4);
+    cache.appendMove(afterE4, E4);
+    cache.appendMove(play(afterE4, E5), E5);
+
+    store.rejecting = true;
+    assertThrows(DataAccessException.class, cache::flush);
+    assertEquals(0, cache.getDirtyCount());
+    assertEquals(0, cache.getCachedGames());
+
+    store.rejecting = false;
+    cache.flush();
+    assertTrue(store.getMoves(1).isEmpty());
+    assertEquals(new ChessGame().toFen(), cache.getGame(1).game().toFen());
+  }
+
+  @Test
+  void flushesInTheBackgroundOnceEnoughWritesWait() throws Exception {
+    try (CachingDataAccess cache = new CachingDataAccess(store, 60_000, 2)) {
+      cache.createGame(new GameData(1, "white", "black", "Game", new ChessGame()));
+      GameData afterE4 = play(cache.getGame(1), E4);
+      cache.appendMove(afterE4, E4);
+      cache.appendMove(play(afterE4, E5), E5);
+
+      long deadline = System.currentTimeMillis() + 5000;
+      while (cache.getDirtyCount() > 0 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      assertEquals(List.of(E4, E5), store.getMoves(1));
+    }
+  }
+
+  @Test
+  void closeWritesEverything() throws Exception {
+    CachingDataAccess cache = new CachingDataAccess(store, 60_000, 100);
+    cache.createGame(new GameData(1, "white", "black", "Game", new ChessGame()));
+    cache.appendMove(play(cache.getGame(1), E4), E4);
+    assertTrue(store.getMoves(1).isEmpty());
+
+    cache.close();
+    assertEquals(List.of(E4), store.getMoves(1));
+  }
+
+  private static GameData play(GameData game, ChessMove move) throws Exception {
+    ChessGame next = game.game().copy();
+    next.makeMove(move);
+    return new GameData(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(), next);
+  }
+
+  private static class CountingDataAccess extends MemoryDataAccess {
+    private volatile boolean failing;
+    private volatile boolean rejecting;
+    private int reads;
+    private int updates;
+
+    @Override
+    public GameData getGame(int gameID) throws DataAccessException {
+      reads++;
+      return super.getGame(gameID);
+    }
+
+    @Override
+    public synchronized void updateGame(GameData game) throws DataAccessException {
+      if (failing) {
+        throw new DataAccessException("Database unavailable");
+      }
+      updates++;
+      super.updateGame(game);
+    }
+
+    @Override
+    public synchronized void appendMove(GameData game, ChessMove move) throws DataAccessException {
+      if (failing) {
+        throw new DataAccessException("Database unavailable");
+      }
+      if (rejecting) {
+        throw new DataAccessException("Duplicate move", new SQLIntegrityConstraintViolationException());
+      }
+      super.appendMove(game, move);
+    }
+
+    @Override
+    public synchronized List<ChessMove> getMoves(int gameID) throws DataAccessException {
+      return super.getMoves(gameID);
+    }
+  }
+}
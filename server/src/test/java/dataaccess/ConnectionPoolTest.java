@@ -0,0 +1,136 @@
+package dataaccess;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionPoolTest {
+
+  private final List<FakeConnection> opened = new ArrayList<>();
+  private long now;
+
+  private ConnectionPool pool(int maxSize, long maxWaitMillis, long idleTimeoutMillis, long leakThresholdMillis) {
+    ConnectionPool.Settings settings = new ConnectionPool.Settings(maxSize, maxWaitMillis, idleTimeoutMillis, 1,
+            leakThresholdMillis);
+    return new ConnectionPool(() -> {
+      FakeConnection fake = new FakeConnection();
+      opened.add(fake);
+      return fake.connection;
+    }, settings, false, () -> now);
+  }
+
+  @Test
+  void reusesReturnedConnections() throws SQLException {
+    ConnectionPool pool = pool(2, 100, 60_000, 0);
+    Connection first = pool.borrow();
+    assertEquals(1, pool.getActiveConnections());
+    first.close();
+    first.close();
+    assertTrue(first.isClosed());
+    assertThrows(SQLException.class, first::createStatement);
+    assertEquals(1, pool.getIdleConnections());
+
+    try (Connection second = pool.borrow()) {
+      assertNotNull(second);
+      assertEquals(1, pool.getCreatedCount());
+      assertEquals(0, pool.getIdleConnections());
+    }
+    assertEquals(2, pool.getBorrowCount());
+    assertFalse(opened.get(0).closed);
+  }
+
+  @Test
+  void timesOutWhenEveryConnectionIsBorrowed() throws SQLException {
+    ConnectionPool pool = pool(1, 20, 60_000, 0);
+    Connection held = pool.borrow();
+    assertThrows(SQLException.class, pool::borrow);
+    assertEquals(1, pool.getTimeoutCount());
+
+    held.close();
+    pool.borrow().close();
+    assertEquals(1, pool.getCreatedCount());
+  }
+
+  @Test
+  void replacesConnectionsThatFailValidation() throws SQLException {
+    ConnectionPool pool = pool(2, 100, 60_000, 0);
+    pool.borrow().close();
+    opened.get(0).valid = false;
+
+    pool.borrow().close();
+    assertEquals(2, pool.getCreatedCount());
+    assertEquals(1, pool.getDiscardedCount());
+    assertTrue(opened.get(0).closed);
+  }
+
+  @Test
+  void evictsIdleConnections() throws SQLException {
+    ConnectionPool pool = pool(2, 100, 10, 0);
+    Connection first = pool.borrow();
+    Connection second = pool.borrow();
+    first.close();
+    advanceMillis(30);
+    second.close();
+
+    assertEquals(1, pool.evictIdle());
+    assertEquals(1, pool.getIdleConnections());
+    assertTrue(opened.get(0).closed);
+    assertFalse(opened.get(1).closed);
+  }
+
+  @Test
+  void reportsEachLeakOnce() throws SQLException {
+    ConnectionPool pool = pool(2, 100, 60_000, 10);
+    Connection leaked = pool.borrow();
+    assertEquals(0, pool.detectLeaks());
+    advanceMillis(30);
+    assertEquals(1, pool.detectLeaks());
+    assertEquals(0, pool.detectLeaks());
+    assertEquals(1, pool.getLeakCount());
+
+    leaked.close();
+    assertEquals(0, pool.getActiveConnections());
+  }
+
+  @Test
+  void closingThePoolClosesIdleConnections() throws SQLException {
+    ConnectionPool pool = pool(2, 100, 60_000, 0);
+    Connection borrowed = pool.borrow();
+    pool.borrow().close();
+    pool.close();
+
+    assertTrue(opened.get(1).closed);
+    borrowed.close();
+    assertTrue(opened.get(0).closed);
+    assertThrows(SQLException.class, pool::borrow);
+  }
+
+  private void advanceMillis(long millis) {
+    now += TimeUnit.MILLISECONDS.toNanos(millis);
+  }
+
+  private static final class FakeConnection {
+    private boolean closed;
+    private boolean valid = true;
+    private final Connection connection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+            new Class<?>[]{Connection.class}, (proxy, method, args) -> switch (method.getName()) {
+              case "close" -> {
+                closed = true;
+                yield null;
+              }
+              case "isClosed" -> closed;
+              case "isValid" -> valid && !closed;
+              case "getAutoCommit" -> true;
+              case "hashCode" -> System.identityHashCode(proxy);
+              case "equals" -> proxy == args[0];
+              default -> null;
+            });
+  }
+}
@@ -1,6 +1,8 @@
 package dataaccess;
 
 import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
 import model.AuthData;
 import model.GameData;
 import model.UserData;
@@ -9,7 +11,9 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -145,6 +149,41 @@ public class MySqlDataAccessTest {
     assertThrows(DataAccessException.class, () -> dataAccess.updateGame(nonexistentGame));
   }
 
+  @Test
+  void appendMovePositive() throws Exception {
+    dataAccess = new MySqlDataAccess(2);
+    dataAccess.createGame(new GameData(0, "white", "black", "Move Log", new ChessGame()));
+    int gameID = dataAccess.listGames().iterator().next().gameID();
+
+    ChessGame game = new ChessGame();
+    List<ChessMove> played = new ArrayList<>();
+    for (String move : new String[]{"e2e4", "e7e5", "g1f3"}) {
+      ChessMove chessMove = ChessMove.of(ChessPosition.of(move.charAt(1) - '0', move.charAt(0) - 'a' + 1),
+              ChessPosition.of(move.charAt(3) - '0', move.charAt(2) - 'a' + 1), null);
+      game.makeMove(chessMove);
+      played.add(chessMove);
+      dataAccess.appendMove(new GameData(gameID, "white", "black", "Move Log", game.copy()), chessMove);
+    }
+
+    assertEquals(played, dataAccess.getMoves(gameID));
+    assertEquals(game.toFen(), dataAccess.getGame(gameID).game().toFen());
+    assertEquals(game.toFen(), dataAccess.listGames().iterator().next().game().toFen());
+  }
+
+  @Test
+  void appendMoveNegativeDuplicatePly() throws Exception {
+    dataAccess.createGame(new GameData(0, "white", "black", "Move Log", new ChessGame()));
+    int gameID = dataAccess.listGames().iterator().next().gameID();
+    ChessGame game = new ChessGame();
+    ChessMove e4 = ChessMove.of(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null);
+    game.makeMove(e4);
+    GameData afterMove = new GameData(gameID, "white", "black", "Move Log", game);
+
+    dataAccess.appendMove(afterMove, e4);
+    assertThrows(DataAccessException.class, () -> dataAccess.appendMove(afterMove, e4));
+    assertEquals(List.of(e4), dataAccess.getMoves(gameID));
+  }
+
   @Test
   void clearPositive() throws DataAccessException {
     createTestUser("user1");
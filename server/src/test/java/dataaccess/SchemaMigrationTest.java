@@ -0,0 +1,36 @@
+package dataaccess;
+
+import chess.*;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.junit.jupiter.api.Test;
+import shared.ChessAdapters;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SchemaMigrationTest {
+
+  @Test
+  void convertsStoredJson() throws InvalidMoveException {
+    Gson gson = new GsonBuilder()
+            .registerTypeAdapter(ChessGame.class, new ChessAdapters.ChessGameAdapter())
+            .registerTypeAdapter(ChessBoard.class, new ChessAdapters.ChessBoardAdapter())
+            .registerTypeAdapter(ChessPosition.class, new ChessAdapters.ChessPositionAdapter())
+            .registerTypeAdapter(ChessPiece.class, new ChessAdapters.ChessPieceAdapter())
+            .registerTypeAdapter(ChessMove.class, new ChessAdapters.ChessMoveAdapter())
+            .create();
+    ChessGame game = new ChessGame();
+    game.makeMove(ChessMove.of(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null));
+    game.makeMove(ChessMove.of(ChessPosition.of(8, 7), ChessPosition.of(6, 6), null));
+    String json = gson.toJson(game);
+
+    byte[] bytes = SchemaMigration.convert(json);
+    assertTrue(bytes.length < json.length() / 10);
+    ChessGame migrated = ChessGameCodec.decode(bytes);
+    assertEquals(game.toFen(), migrated.toFen());
+    assertEquals(game.getLastMove(), migrated.getLastMove());
+    assertArrayEquals(game.getPositionHistory(), migrated.getPositionHistory());
+
+    assertThrows(IllegalArgumentException.class, () -> SchemaMigration.convert("{\"teamTurn\":\"WHITE\"}"));
+  }
+}
@@ -49,4 +49,125 @@ class GameServiceTest {
     gameService.joinGame(authToken, gameId, chess.ChessGame.TeamColor.WHITE);
     assertThrows(Exception.class, () -> gameService.joinGame(authToken, gameId, chess.ChessGame.TeamColor.WHITE));
   }
-}
\ No newline at end of file
+
+  @Test
+  void testEngineMoveForEngineSeat() throws Exception {
+    gameService = new GameService(dataAccess, new chess.engine.Engine(), 50);
+    int gameId = gameService.createGame(authToken, "Engine Test");
+    gameService.joinGame(authToken, gameId, chess.ChessGame.TeamColor.BLACK, true);
+
+    var move = gameService.makeEngineMove(authToken, gameId);
+    var game = dataAccess.getGame(gameId).game();
+    assertEquals(chess.ChessGame.TeamColor.WHITE, game.getBoard().getPiece(move.getEndPosition()).getTeamColor());
+    assertEquals(chess.ChessGame.TeamColor.BLACK, game.getTeamTurn());
+    assertThrows(Exception.class, () -> gameService.makeEngineMove(authToken, gameId));
+    assertThrows(Exception.class, () -> gameService.joinGame(authToken, gameId, chess.ChessGame.TeamColor.WHITE));
+  }
+
+  @Test
+  void testEngineOnlyPlaysItsOwnSeat() throws Exception {
+    gameService = new GameService(dataAccess, new chess.engine.Engine(), 50);
+    int twoPlayerId = gameService.createGame(authToken, "Two Players");
+    gameService.joinGame(authToken, twoPlayerId, chess.ChessGame.TeamColor.BLACK);
+    var thrown = assertThrows(Exception.class, () -> gameService.makeEngineMove(authToken, twoPlayerId));
+    assertEquals("Error: not a single-player game", thrown.getMessage());
+
+    int gameId = gameService.createGame(authToken, "Engine Plays Black", chess.ChessGame.TeamColor.BLACK);
+    gameService.joinGame(authToken, gameId, chess.ChessGame.TeamColor.WHITE);
+    thrown = assertThrows(Exception.class, () -> gameService.makeEngineMove(authToken, gameId));
+    assertEquals("Error: not the engine's turn", thrown.getMessage());
+
+    var e4 = chess.ChessMove.of(chess.ChessPosition.of(2, 5), chess.ChessPosition.of(4, 5), null);
+    gameService.makeMove(authToken, gameId, e4);
+    String otherToken = new UserService(dataAccess).register(new UserData("other", "password", "other@example.com"))
+            .authToken();
+    thrown = assertThrows(Exception.class, () -> gameService.makeEngineMove(otherToken, gameId));
+    assertEquals("Error: not a player in this game", thrown.getMessage());
+    assertNotNull(gameService.makeEngineMove(authToken, gameId));
+  }
+
+  @Test
+  void testSnapshotsIgnoreLaterMoves() throws Exception {
+    int gameId = gameService.createGame(authToken, "Snapshot Test");
+    gameService.joinGame(authToken, gameId, chess.ChessGame.TeamColor.WHITE);
+    var before = gameService.getSnapshot(authToken, gameId);
+    GameData held = gameService.getGameState(authToken, gameId);
+
+    var e4 = chess.ChessMove.of(chess.ChessPosition.of(2, 5), chess.ChessPosition.of(4, 5), null);
+    gameService.makeMove(authToken, gameId, e4);
+    var after = gameService.getSnapshot(authToken, gameId);
+
+    assertNotNull(before.getPieceType(chess.ChessPosition.of(2, 5)));
+    assertNull(held.game().getBoard().getPiece(4, 5));
+    assertEquals(chess.ChessGame.TeamColor.WHITE, held.game().getTeamTurn());
+    assertEquals(e4, after.getLastMove());
+    assertEquals(chess.ChessGame.TeamColor.BLACK, after.getTeamTurn());
+    assertEquals(dataAccess.getGame(gameId).game().toFen(), after.toFen());
+  }
+
+  @Test
+  void testSnapshotsAreRebuiltAfterReleaseAndGoneAfterClear() throws Exception {
+    int gameId = gameService.createGame(authToken, "Release Test");
+    gameService.joinGame(authToken, gameId, chess.ChessGame.TeamColor.WHITE);
+    var e4 = chess.ChessMove.of(chess.ChessPosition.of(2, 5), chess.ChessPosition.of(4, 5), null);
+    gameService.makeMove(authToken, gameId, e4);
+
+    gameService.releaseGame(gameId);
+    assertEquals(e4, gameService.getSnapshot(authToken, gameId).getLastMove());
+    gameService.resignGame(authToken, gameId);
+    assertTrue(gameService.getSnapshot(authToken, gameId).isGameOver());
+
+    int otherId = gameService.createGame(authToken, "Cleared");
+    gameService.getSnapshot(authToken, otherId);
+    gameService.clear();
+    String newToken = new UserService(dataAccess).register(new UserData("testUser", "password", "email@example.com"))
+            .authToken();
+    var thrown = assertThrows(Exception.class, () -> gameService.getSnapshot(newToken, otherId));
+    assertEquals("Error: game not found", thrown.getMessage());
+  }
+
+  @Test
+  void testSimultaneousMovesAreAppliedOnce() throws Exception {
+    int gameId = gameService.createGame(authToken, "Double Submit Test");
+    gameService.joinGame(authToken, gameId, chess.ChessGame.TeamColor.WHITE);
+    var e4 = chess.ChessMove.of(chess.ChessPosition.of(2, 5), chess.ChessPosition.of(4, 5), null);
+
+    var start = new java.util.concurrent.CountDownLatch(1);
+    var succeeded = new java.util.concurrent.atomic.AtomicInteger();
+    var threads = new java.util.ArrayList<Thread>();
+    for (int i = 0; i < 4; i++) {
+      threads.add(new Thread(() -> {
+        try {
+          start.await();
+          gameService.makeMove(authToken, gameId, e4);
+          succeeded.incrementAndGet();
+        } catch (Exception e) {
+          // The other submissions find it is no longer white's turn
+        }
+      }));
+    }
+    threads.forEach(Thread::start);
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertEquals(1, succeeded.get());
+    assertEquals(java.util.List.of(e4), gameService.getMoveHistory(authToken, gameId));
+  }
+
+  @Test
+  void testMoveHistory() throws Exception {
+    gameService = new GameService(dataAccess, new chess.engine.Engine(), 50);
+    int gameId = gameService.createGame(authToken, "History Test");
+    gameService.joinGame(authToken, gameId, chess.ChessGame.TeamColor.WHITE, true);
+    assertTrue(gameService.getMoveHistory(authToken, gameId).isEmpty());
+
+    var e4 = chess.ChessMove.of(chess.ChessPosition.of(2, 5), chess.ChessPosition.of(4, 5), null);
+    gameService.makeMove(authToken, gameId, e4);
+    var reply = gameService.makeEngineMove(authToken, gameId);
+
+    assertEquals(java.util.List.of(e4, reply), gameService.getMoveHistory(authToken, gameId));
+    assertThrows(Exception.class, () -> gameService.getMoveHistory("bad token", gameId));
+  }
+}
@@ -0,0 +1,90 @@
+package chess;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+
+/**
+ * Read-only picture of a game at one moment. It keeps a private copy of the game
+ * that nothing changes after construction, and works out the status and key up
+ * front, so any number of threads can read one snapshot while the game it came
+ * from keeps being played.
+ */
+public final class BoardSnapshot {
+    private final ChessGame game;
+    private final ChessGame.GameStatus status;
+    private final long key;
+
+    private BoardSnapshot(ChessGame game) {
+        this.game = game;
+        this.status = game.getGameStatus();
+        this.key = game.getKey();
+    }
+
+    public static BoardSnapshot of(ChessGame game) {
+        return new BoardSnapshot(game.copy());
+    }
+
+    /**
+     * The type of the piece on a square, or null when it is empty. Pieces themselves
+     * are not handed out, as they could be changed; {@link #toGame()} gives ones that can.
+     */
+    public ChessPiece.PieceType getPieceType(ChessPosition position) {
+        ChessPiece piece = game.getBoard().getPiece(position);
+        return piece == null ? null : piece.getPieceType();
+    }
+
+    /**
+     * The color of the piece on a square, or null when it is empty.
+     */
+    public ChessGame.TeamColor getPieceColor(ChessPosition position) {
+        ChessPiece piece = game.getBoard().getPiece(position);
+        return piece == null ? null : piece.getTeamColor();
+    }
+
+    public ChessGame.TeamColor getTeamTurn() {
+        return game.getTeamTurn();
+    }
+
+    /**
+     * Plies played since the starting position, for telling which of two snapshots
+     * of a game is newer.
+     */
+    public int getPly() {
+        return game.getPly();
+    }
+
+    public ChessMove getLastMove() {
+        return game.getLastMove();
+    }
+
+    public ChessGame.GameStatus getStatus() {
+        return status;
+    }
+
+    public boolean isGameOver() {
+        return status.isFinished();
+    }
+
+    public long getKey() {
+        return key;
+    }
+
+    public String toFen() {
+        return game.toFen();
+    }
+
+    /**
+     * The game as JSON, written from the snapshot's own copy. Serializing only reads the
+     * game, so no copy is made for it.
+     */
+    public JsonElement toJsonTree(Gson gson) {
+        return gson.toJsonTree(game, ChessGame.class);
+    }
+
+    /**
+     * A game in this position that the caller is free to change or hand on.
+     */
+    public ChessGame toGame() {
+        return game.copy();
+    }
+}
@@ -1,35 +1,412 @@
 package chess;
 
-import java.util.HashMap;
+import chess.eval.PieceSquareTables;
+import chess.movegen.Attacks;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 import java.io.Serializable;
 
+/**
+ * Bitboard-backed chess board. Squares are indexed 0-63 starting at row 1, column 1
+ * (a1) and moving along the row, so square = (row - 1) * 8 + (col - 1).
+ */
 public class ChessBoard implements Serializable {
-    private static final long serialVersionUID = 1L;
-    private final Map<ChessPosition, ChessPiece> board;
+    private static final long serialVersionUID = 2L;
+    private static final int PIECE_TYPES = ChessPiece.PieceType.values().length;
+    private static final int HAD_MOVED = 1 << 18;
+    private static final int CASTLED = 1 << 19;
+    private static final int PROMOTED = 1 << 20;
+
+    private final long[] pieceSets = new long[2 * PIECE_TYPES];
+    private final long[] occupancy = new long[2];
+    private final ChessPiece[] squares = new ChessPiece[64];
+    private transient Map<ChessPosition, ChessPiece> boardView;
+
+    // Zobrist key of the piece placement, kept up to date by placePiece/removePiece once
+    // it has been computed; boards built reflectively start without one
+    private transient long pieceKey;
+    private transient boolean pieceKeyValid;
+
+    // Piece-square sums for evaluation and the game phase, kept up to date the same
+    // way as the key
+    private transient int midgameScore;
+    private transient int endgameScore;
+    private transient int phase;
+    private transient boolean scoresValid;
+
+    // Squares each side attacks, one bit per side in attackMapsValid; worked out on
+    // first use and dropped whenever a piece is placed or removed
+    private transient long[] attackMaps;
+    private transient int attackMapsValid;
+
+    // Undo stack for doMove/undoMove, stored as parallel arrays to avoid a record per move
+    private transient int undoSize;
+    private transient int[] undoInfo;
+    private transient ChessPiece[] undoMoved;
+    private transient ChessPiece[] undoCaptured;
 
     public ChessBoard() {
-        board = new HashMap<>();
+    }
+
+    public static int squareIndex(int row, int col) {
+        return (row - 1) * 8 + (col - 1);
+    }
+
+    public static boolean isOnBoard(int row, int col) {
+        return row >= 1 && row <= 8 && col >= 1 && col <= 8;
+    }
+
+    public static int pieceIndex(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return color.ordinal() * PIECE_TYPES + type.ordinal();
     }
 
     public void addPiece(ChessPosition position, ChessPiece piece) {
+        if (!isOnBoard(position.getRow(), position.getCol())) {
+            throw new IllegalArgumentException("Position is off the board: " + position);
+        }
+        int square = squareIndex(position.getRow(), position.getCol());
+        removePiece(square);
+        if (piece != null) {
+            placePiece(square, piece);
+        }
+    }
+
+    public ChessPiece getPiece(ChessPosition position) {
+        return getPiece(position.getRow(), position.getCol());
+    }
+
+    public ChessPiece getPiece(int row, int col) {
+        if (!isOnBoard(row, col)) {
+            return null;
+        }
+        return squares[squareIndex(row, col)];
+    }
+
+    public ChessPiece getPiece(int square) {
+        return squares[square];
+    }
+
+    public long getPieces(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return pieceSets[pieceIndex(color, type)];
+    }
+
+    public long getOccupancy(ChessGame.TeamColor color) {
+        return occupancy[color.ordinal()];
+    }
+
+    public long getOccupancy() {
+        return occupancy[0] | occupancy[1];
+    }
+
+    void placePiece(int square, ChessPiece piece) {
+        long bit = 1L << square;
+        squares[square] = piece;
+        attackMapsValid = 0;
+        int index = pieceIndex(piece.getTeamColor(), piece.getPieceType());
+        pieceSets[index] |= bit;
+        occupancy[piece.getTeamColor().ordinal()] |= bit;
+        if (pieceKeyValid) {
+            pieceKey ^= Zobrist.piece(index, square);
+        }
+        if (scoresValid) {
+            midgameScore += PieceSquareTables.midgame(index, square);
+            endgameScore += PieceSquareTables.endgame(index, square);
+            phase += PieceSquareTables.phase(index);
+        }
+    }
+
+    ChessPiece removePiece(int square) {
+        ChessPiece piece = squares[square];
+        if (piece != null) {
+            long mask = ~(1L << square);
+            squares[square] = null;
+            attackMapsValid = 0;
+            int index = pieceIndex(piece.getTeamColor(), piece.getPieceType());
+            pieceSets[index] &= mask;
+            occupancy[piece.getTeamColor().ordinal()] &= mask;
+            if (pieceKeyValid) {
+                pieceKey ^= Zobrist.piece(index, square);
+            }
+            if (scoresValid) {
+                midgameScore -= PieceSquareTables.midgame(index, square);
+                endgameScore -= PieceSquareTables.endgame(index, square);
+                phase -= PieceSquareTables.phase(index);
+            }
+        }
+        return piece;
+    }
+
+    private void clear() {
+        Arrays.fill(pieceSets, 0L);
+        Arrays.fill(occupancy, 0L);
+        Arrays.fill(squares, null);
+        undoSize = 0;
+        attackMapsValid = 0;
+        pieceKey = 0;
+        pieceKeyValid = true;
+        midgameScore = 0;
+        endgameScore = 0;
+        phase = 0;
+        scoresValid = true;
+    }
+
+    /**
+     * Zobrist key of the pieces and castling rights on this board.
+     */
+    public long getKey() {
+        return getPieceKey() ^ Zobrist.castling(getCastlingRights());
+    }
+
+    private long getPieceKey() {
+        if (!pieceKeyValid) {
+            long key = 0;
+            for (int index = 0; index < pieceSets.length; index++) {
+                long pieces = pieceSets[index];
+                while (pieces != 0) {
+                    key ^= Zobrist.piece(index, Long.numberOfTrailingZeros(pieces));
+                    pieces &= pieces - 1;
+                }
+            }
+            pieceKey = key;
+            pieceKeyValid = true;
+        }
+        return pieceKey;
+    }
+
+    /**
+     * Sum of the midgame piece-square values, material included, from white's point
+     * of view.
+     */
+    public int getMidgameScore() {
+        ensureScores();
+        return midgameScore;
+    }
+
+    public int getEndgameScore() {
+        ensureScores();
+        return endgameScore;
+    }
+
+    /**
+     * Game phase from the pieces left on the board; see {@link PieceSquareTables#phase}.
+     */
+    public int getPhase() {
+        ensureScores();
+        return phase;
+    }
+
+    private void ensureScores() {
+        if (!scoresValid) {
+            midgameScore = 0;
+            endgameScore = 0;
+            phase = 0;
+            for (int index = 0; index < pieceSets.length; index++) {
+                long pieces = pieceSets[index];
+                while (pieces != 0) {
+                    int square = Long.numberOfTrailingZeros(pieces);
+                    pieces &= pieces - 1;
+                    midgameScore += PieceSquareTables.midgame(index, square);
+                    endgameScore += PieceSquareTables.endgame(index, square);
+                    phase += PieceSquareTables.phase(index);
+                }
+            }
+            scoresValid = true;
+        }
+    }
+
+    /**
+     * Every square {@code color} attacks, whether or not a piece stands on it. The map
+     * is cached until the board next changes, so repeated queries on one position,
+     * such as check and the squares a castling king crosses, cost a lookup each.
+     */
+    public long getAttacks(ChessGame.TeamColor color) {
+        int side = 1 << color.ordinal();
+        if (attackMaps == null) {
+            attackMaps = new long[2];
+        }
+        if ((attackMapsValid & side) == 0) {
+            attackMaps[color.ordinal()] = computeAttacks(color);
+            attackMapsValid |= side;
+        }
+        return attackMaps[color.ordinal()];
+    }
+
+    public boolean isSquareAttacked(int square, ChessGame.TeamColor attacker) {
+        return (getAttacks(attacker) & (1L << square)) != 0;
+    }
+
+    private long computeAttacks(ChessGame.TeamColor color) {
+        long all = getOccupancy();
+        long attacks = 0;
+        for (long pieces = occupancy[color.ordinal()]; pieces != 0; pieces &= pieces - 1) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            attacks |= switch (squares[square].getPieceType()) {
+                case KING -> Attacks.king(square);
+                case QUEEN -> Attacks.queen(square, all);
+                case BISHOP -> Attacks.bishop(square, all);
+                case KNIGHT -> Attacks.knight(square);
+                case ROOK -> Attacks.rook(square, all);
+                case PAWN -> Attacks.pawn(color, square);
+            };
+        }
+        return attacks;
+    }
+
+    /**
+     * Castling rights as {@link Zobrist} flags, read from whether the kings and rooks
+     * on their home squares have moved.
+     */
+    public int getCastlingRights() {
+        int rights = 0;
+        if (canStillCastle(ChessGame.TeamColor.WHITE, 0)) {
+            rights |= castlingRight(ChessGame.TeamColor.WHITE, 7, Zobrist.WHITE_KINGSIDE)
+                    | castlingRight(ChessGame.TeamColor.WHITE, 0, Zobrist.WHITE_QUEENSIDE);
+        }
+        if (canStillCastle(ChessGame.TeamColor.BLACK, 56)) {
+            rights |= castlingRight(ChessGame.TeamColor.BLACK, 63, Zobrist.BLACK_KINGSIDE)
+                    | castlingRight(ChessGame.TeamColor.BLACK, 56, Zobrist.BLACK_QUEENSIDE);
+        }
+        return rights;
+    }
+
+    private boolean canStillCastle(ChessGame.TeamColor color, int rowStart) {
+        ChessPiece king = squares[rowStart + 4];
+        return king != null && king.getPieceType() == ChessPiece.PieceType.KING && king.getTeamColor() == color
+                && !king.hasMoved();
+    }
+
+    // An unmoved rook of the other colour can stand there after a promotion
+    private int castlingRight(ChessGame.TeamColor color, int rookSquare, int flag) {
+        ChessPiece rook = squares[rookSquare];
+        return rook != null && rook.getPieceType() == ChessPiece.PieceType.ROOK && rook.getTeamColor() == color
+                && !rook.hasMoved() ? flag : 0;
+    }
+
+    /**
+     * Plays a move in place, including en passant captures, the rook half of a
+     * castle and promotion, and records what is needed to take it back with
+     * {@link #undoMove()}. The move is not checked for legality.
+     */
+    public void doMove(ChessMove move) {
+        ChessPosition start = move.getStartPosition();
+        ChessPosition end = move.getEndPosition();
+        doMove(squareIndex(start.getRow(), start.getCol()), squareIndex(end.getRow(), end.getCol()),
+                move.getPromotionPiece());
+    }
+
+    public void doMove(int from, int to, ChessPiece.PieceType promotion) {
+        ChessPiece piece = squares[from];
         if (piece == null) {
-            board.remove(position);
+            throw new IllegalArgumentException("No piece on square " + from);
+        }
+        int info = from | (to << 6) | (piece.hasMoved() ? HAD_MOVED : 0);
+
+        // Handle en passant
+        int capturedSquare = to;
+        if (piece.getPieceType() == ChessPiece.PieceType.PAWN && (from & 7) != (to & 7) && squares[to] == null) {
+            capturedSquare = (from & ~7) | (to & 7);
+        }
+        ChessPiece captured = removePiece(capturedSquare);
+        info |= capturedSquare << 12;
+
+        // Handle castling
+        if (piece.getPieceType() == ChessPiece.PieceType.KING && Math.abs((from & 7) - (to & 7)) == 2) {
+            ChessPiece rook = removePiece(rookStart(from, to));
+            if (rook != null) {
+                placePiece(rookEnd(from, to), rook);
+                info |= CASTLED;
+            }
+        }
+
+        removePiece(from);
+        if (promotion != null) {
+            placePiece(to, new ChessPiece(piece.getTeamColor(), promotion));
+            info |= PROMOTED;
         } else {
-            board.put(position, piece);
+            placePiece(to, piece);
         }
+        piece.setHasMoved(true);
+        pushUndo(info, piece, captured);
     }
 
-    public ChessPiece getPiece(ChessPosition position) {
-        return board.get(position);
+    /**
+     * Plays a move in place like {@link #doMove(ChessMove)}, but for good: nothing is
+     * kept for undoMove, so the captured piece is not held on to.
+     */
+    public void applyMove(ChessMove move) {
+        doMove(move);
+        undoSize--;
+        undoMoved[undoSize] = null;
+        undoCaptured[undoSize] = null;
+    }
+
+    /**
+     * Takes back the most recent move made with {@link #doMove(ChessMove)}.
+     */
+    public void undoMove() {
+        if (undoSize == 0) {
+            throw new IllegalStateException("No move to undo");
+        }
+        undoSize--;
+        int info = undoInfo[undoSize];
+        ChessPiece piece = undoMoved[undoSize];
+        ChessPiece captured = undoCaptured[undoSize];
+        undoMoved[undoSize] = null;
+        undoCaptured[undoSize] = null;
+
+        int from = info & 63;
+        int to = (info >>> 6) & 63;
+        removePiece(to);
+        placePiece(from, piece);
+        piece.setHasMoved((info & HAD_MOVED) != 0);
+        if ((info & CASTLED) != 0) {
+            placePiece(rookStart(from, to), removePiece(rookEnd(from, to)));
+        }
+        if (captured != null) {
+            placePiece((info >>> 12) & 63, captured);
+        }
+    }
+
+    public int getUndoDepth() {
+        return undoSize;
+    }
+
+    private static int rookStart(int kingFrom, int kingTo) {
+        return kingTo > kingFrom ? (kingFrom & ~7) + 7 : kingFrom & ~7;
+    }
+
+    private static int rookEnd(int kingFrom, int kingTo) {
+        return kingTo > kingFrom ? (kingFrom & ~7) + 5 : (kingFrom & ~7) + 3;
+    }
+
+    private void pushUndo(int info, ChessPiece moved, ChessPiece captured) {
+        if (undoInfo == null) {
+            undoInfo = new int[64];
+            undoMoved = new ChessPiece[64];
+            undoCaptured = new ChessPiece[64];
+        } else if (undoSize == undoInfo.length) {
+            undoInfo = Arrays.copyOf(undoInfo, undoSize * 2);
+            undoMoved = Arrays.copyOf(undoMoved, undoSize * 2);
+            undoCaptured = Arrays.copyOf(undoCaptured, undoSize * 2);
+        }
+        undoInfo[undoSize] = info;
+        undoMoved[undoSize] = moved;
+        undoCaptured[undoSize] = captured;
+        undoSize++;
     }
 
     public void resetBoard() {
-        board.clear();
+        clear();
         // Add pawns
         for (int col = 1; col <= 8; col++) {
-            board.put(new ChessPosition(2, col), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
-            board.put(new ChessPosition(7, col), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+            placePiece(squareIndex(2, col), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+            placePiece(squareIndex(7, col), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
         }
         // Add other pieces
         setPieceRow(1, ChessGame.TeamColor.WHITE);
@@ -37,18 +414,25 @@ public class ChessBoard implements Serializable {
     }
 
     private void setPieceRow(int row, ChessGame.TeamColor color) {
-        board.put(new ChessPosition(row, 1), new ChessPiece(color, ChessPiece.PieceType.ROOK));
-        board.put(new ChessPosition(row, 2), new ChessPiece(color, ChessPiece.PieceType.KNIGHT));
-        board.put(new ChessPosition(row, 3), new ChessPiece(color, ChessPiece.PieceType.BISHOP));
-        board.put(new ChessPosition(row, 4), new ChessPiece(color, ChessPiece.PieceType.QUEEN));
-        board.put(new ChessPosition(row, 5), new ChessPiece(color, ChessPiece.PieceType.KING));
-        board.put(new ChessPosition(row, 6), new ChessPiece(color, ChessPiece.PieceType.BISHOP));
-        board.put(new ChessPosition(row, 7), new ChessPiece(color, ChessPiece.PieceType.KNIGHT));
-        board.put(new ChessPosition(row, 8), new ChessPiece(color, ChessPiece.PieceType.ROOK));
+        ChessPiece.PieceType[] order = {
+                ChessPiece.PieceType.ROOK, ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.BISHOP,
+                ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.KING, ChessPiece.PieceType.BISHOP,
+                ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.ROOK
+        };
+        for (int col = 1; col <= 8; col++) {
+            placePiece(squareIndex(row, col), new ChessPiece(color, order[col - 1]));
+        }
     }
 
+    /**
+     * Returns a live, map-shaped view of the board for callers that still work with
+     * positions and pieces. Entries are created lazily while iterating.
+     */
     public Map<ChessPosition, ChessPiece> getBoard() {
-        return this.board;
+        if (boardView == null) {
+            boardView = new BoardView();
+        }
+        return boardView;
     }
 
     @Override
@@ -60,27 +444,133 @@ public class ChessBoard implements Serializable {
             return false;
         }
         ChessBoard that = (ChessBoard) o;
-        return board.equals(that.board);
+        return Arrays.equals(pieceSets, that.pieceSets);
     }
 
     @Override
     public int hashCode() {
-        return board.hashCode();
+        return Long.hashCode(getPieceKey());
     }
 
     @Override
     public String toString() {
         return "ChessBoard{" +
-                "board=" + board +
+                "board=" + getBoard() +
                 '}';
     }
 
     @Override
     protected ChessBoard clone() {
         ChessBoard clonedBoard = new ChessBoard();
-        for (Map.Entry<ChessPosition, ChessPiece> entry : this.board.entrySet()) {
-            clonedBoard.addPiece(entry.getKey(), entry.getValue());
-        }
+        System.arraycopy(pieceSets, 0, clonedBoard.pieceSets, 0, pieceSets.length);
+        System.arraycopy(occupancy, 0, clonedBoard.occupancy, 0, occupancy.length);
+        System.arraycopy(squares, 0, clonedBoard.squares, 0, squares.length);
+        clonedBoard.pieceKey = pieceKey;
+        clonedBoard.pieceKeyValid = pieceKeyValid;
+        clonedBoard.midgameScore = midgameScore;
+        clonedBoard.endgameScore = endgameScore;
+        clonedBoard.phase = phase;
+        clonedBoard.scoresValid = scoresValid;
         return clonedBoard;
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns an independent copy of this board. Unlike {@link #clone()}, the pieces
+     * are copied too, so moves made on one board never change hasMoved on the other.
+     */
+    public ChessBoard copy() {
+        ChessBoard copy = clone();
+        long pieces = getOccupancy();
+        while (pieces != 0) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            ChessPiece piece = squares[square];
+            ChessPiece pieceCopy = new ChessPiece(piece.getTeamColor(), piece.getPieceType());
+            pieceCopy.setHasMoved(piece.hasMoved());
+            copy.squares[square] = pieceCopy;
+        }
+        return copy;
+    }
+
+    private class BoardView extends AbstractMap<ChessPosition, ChessPiece> {
+        @Override
+        public ChessPiece get(Object key) {
+            return key instanceof ChessPosition position ? getPiece(position) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public ChessPiece put(ChessPosition key, ChessPiece value) {
+            ChessPiece previous = getPiece(key);
+            addPiece(key, value);
+            return previous;
+        }
+
+        @Override
+        public ChessPiece remove(Object key) {
+            if (!(key instanceof ChessPosition position) || !isOnBoard(position.getRow(), position.getCol())) {
+                return null;
+            }
+            return removePiece(squareIndex(position.getRow(), position.getCol()));
+        }
+
+        @Override
+        public int size() {
+            return Long.bitCount(getOccupancy());
+        }
+
+        @Override
+        public void clear() {
+            ChessBoard.this.clear();
+        }
+
+        @Override
+        public Set<Entry<ChessPosition, ChessPiece>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<ChessPosition, ChessPiece>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return BoardView.this.size();
+                }
+            };
+        }
+    }
+
+    private class EntryIterator implements Iterator<Map.Entry<ChessPosition, ChessPiece>> {
+        private long remaining = getOccupancy();
+        private int lastSquare = -1;
+
+        @Override
+        public boolean hasNext() {
+            return remaining != 0;
+        }
+
+        @Override
+        public Map.Entry<ChessPosition, ChessPiece> next() {
+            if (remaining == 0) {
+                throw new NoSuchElementException();
+            }
+            lastSquare = Long.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1;
+            ChessPosition position = ChessPosition.of(lastSquare);
+            return new AbstractMap.SimpleImmutableEntry<>(position, squares[lastSquare]);
+        }
+
+        @Override
+        public void remove() {
+            if (lastSquare < 0) {
+                throw new IllegalStateException();
+            }
+            removePiece(lastSquare);
+            lastSquare = -1;
+        }
+    }
+}
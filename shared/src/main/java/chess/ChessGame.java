@@ -1,8 +1,22 @@
 package chess;
 
+import chess.movegen.LegalMoveGenerator;
+import chess.movegen.Move;
+import chess.movegen.MoveGenerator;
+import chess.movegen.MoveList;
+import chess.tablebase.TablebaseResult;
+import chess.tablebase.Tablebases;
+
 import java.util.Collection;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.io.Serializable;
 
 public class ChessGame implements Serializable {
@@ -11,6 +25,14 @@ public class ChessGame implements Serializable {
     private TeamColor teamTurn;
     private ChessMove lastMove;
     private boolean isGameOver;
+    // Keys of the positions since the last pawn move or capture, oldest first and not
+    // including the current position; no older position can ever repeat
+    private long[] positionHistory = new long[0];
+    private int historySize;
+    private int halfmoveClock;
+    private int fullmoveNumber = 1;
+    private transient MoveGenerationMode moveGenerationMode = MoveGenerationMode.LEGAL;
+    private transient GameStatus status;
 
     public ChessGame() {
         this.board = new ChessBoard();
@@ -18,6 +40,55 @@ public class ChessGame implements Serializable {
         initializeBoard();
     }
 
+    /**
+     * A game in a position read from elsewhere, without setting up the starting
+     * position first. The game takes ownership of the board and the history array.
+     */
+    ChessGame(ChessBoard board, TeamColor teamTurn, ChessMove lastMove, boolean gameOver,
+              int halfmoveClock, int fullmoveNumber, long[] positionHistory) {
+        this.board = board;
+        this.teamTurn = teamTurn;
+        this.lastMove = lastMove;
+        this.isGameOver = gameOver;
+        this.halfmoveClock = halfmoveClock;
+        this.fullmoveNumber = fullmoveNumber;
+        this.positionHistory = positionHistory;
+        this.historySize = positionHistory.length;
+    }
+
+    private ChessGame(ChessGame other) {
+        this.board = other.board.copy();
+        this.teamTurn = other.teamTurn;
+        this.lastMove = other.lastMove;
+        this.isGameOver = other.isGameOver;
+        this.positionHistory = Arrays.copyOf(other.positionHistory, other.historySize);
+        this.historySize = other.historySize;
+        this.halfmoveClock = other.halfmoveClock;
+        this.fullmoveNumber = other.fullmoveNumber;
+        this.moveGenerationMode = other.moveGenerationMode;
+    }
+
+    /**
+     * Returns an independent copy of this game, board and pieces included.
+     */
+    public ChessGame copy() {
+        return new ChessGame(this);
+    }
+
+    /**
+     * Builds a game from a FEN string, including castling rights, the en passant
+     * square and both move clocks.
+     *
+     * @throws IllegalArgumentException if the string is not valid FEN
+     */
+    public static ChessGame fromFen(CharSequence fen) {
+        return Fen.parse(fen);
+    }
+
+    public String toFen() {
+        return Fen.format(this);
+    }
+
     public void initializeBoard() {
         board.resetBoard();
     }
@@ -28,6 +99,7 @@ public class ChessGame implements Serializable {
 
     public void setTeamTurn(TeamColor team) {
         this.teamTurn = team;
+        status = null;
     }
 
     public enum TeamColor {
@@ -35,19 +107,104 @@ public class ChessGame implements Serializable {
         BLACK
     }
 
+    /**
+     * Status of the game from the point of view of the side to move.
+     */
+    public enum GameStatus {
+        ONGOING,
+        CHECK,
+        CHECKMATE,
+        STALEMATE,
+        THREEFOLD_REPETITION,
+        FIFTY_MOVE_RULE,
+        TABLEBASE_DRAW,
+        RESIGNED;
+
+        public boolean isFinished() {
+            return this != ONGOING && this != CHECK;
+        }
+    }
+
+    /**
+     * REFERENCE generates moves through ChessPiece.pieceMoves; BITBOARD uses the
+     * table-driven generator in chess.movegen, which produces the same moves. Both
+     * filter out moves that leave the king in check by playing them out. LEGAL uses
+     * pin and check masks to generate only legal moves in the first place.
+     */
+    public enum MoveGenerationMode {
+        REFERENCE,
+        BITBOARD,
+        LEGAL
+    }
+
+    public MoveGenerationMode getMoveGenerationMode() {
+        return moveGenerationMode;
+    }
+
+    public void setMoveGenerationMode(MoveGenerationMode mode) {
+        this.moveGenerationMode = mode;
+        status = null;
+    }
+
+    /**
+     * Returns the status for the side to move. It is computed once and cached until
+     * the game is next changed through this class, so callers that edit the board
+     * returned by {@link #getBoard()} directly should call {@link #setBoard} afterwards.
+     */
+    public GameStatus getGameStatus() {
+        if (status == null) {
+            status = computeGameStatus();
+        }
+        return status;
+    }
+
+    private GameStatus computeGameStatus() {
+        boolean inCheck = isInCheck(teamTurn);
+        if (!hasValidMove(teamTurn)) {
+            return inCheck ? GameStatus.CHECKMATE : GameStatus.STALEMATE;
+        }
+        if (halfmoveClock >= 100) {
+            return GameStatus.FIFTY_MOVE_RULE;
+        }
+        if (repetitionCount() >= 3) {
+            return GameStatus.THREEFOLD_REPETITION;
+        }
+        if (isGameOver) {
+            return GameStatus.RESIGNED;
+        }
+        if (isTablebaseDraw()) {
+            return GameStatus.TABLEBASE_DRAW;
+        }
+        return inCheck ? GameStatus.CHECK : GameStatus.ONGOING;
+    }
+
+    private boolean isTablebaseDraw() {
+        Tablebases tablebases = Tablebases.installed();
+        if (tablebases == null) {
+            return false;
+        }
+        TablebaseResult result = tablebases.probe(board, teamTurn);
+        return result != null && result.outcome() == TablebaseResult.Outcome.DRAW;
+    }
+
     public Collection<ChessMove> validMoves(ChessPosition startPosition) {
         ChessPiece piece = board.getPiece(startPosition);
         if (piece == null) {
             return null;
         }
-        Collection<ChessMove> possibleMoves = piece.pieceMoves(board, startPosition, lastMove);
+        if (moveGenerationMode == MoveGenerationMode.LEGAL) {
+            return LegalMoveGenerator.legalMoves(board, startPosition, lastMove);
+        }
+        Collection<ChessMove> possibleMoves = moveGenerationMode == MoveGenerationMode.REFERENCE
+                ? piece.pieceMoves(board, startPosition, lastMove)
+                : MoveGenerator.pieceMoves(board, startPosition, lastMove);
         Collection<ChessMove> validMoves = new ArrayList<>();
 
         for (ChessMove move : possibleMoves) {
-            ChessBoard clonedBoard = board.clone();
-            clonedBoard.addPiece(move.getEndPosition(), piece);
-            clonedBoard.addPiece(move.getStartPosition(), null);
-            if (!isInCheck(clonedBoard, piece.getTeamColor())) {
+            board.doMove(move);
+            boolean leavesKingInCheck = isInCheck(board, piece.getTeamColor());
+            board.undoMove();
+            if (!leavesKingInCheck) {
                 validMoves.add(move);
             }
         }
@@ -56,13 +213,21 @@ public class ChessGame implements Serializable {
     }
 
     public boolean isGameOver() {
-        return isGameOver || isInCheckmate(TeamColor.WHITE) ||
-                isInCheckmate(TeamColor.BLACK) || isInStalemate(TeamColor.WHITE) ||
-                isInStalemate(TeamColor.BLACK);
+        return getGameStatus().isFinished();
     }
 
     public void setGameOver(boolean gameOver) {
         isGameOver = gameOver;
+        status = null;
+    }
+
+    /**
+     * The flag set by {@link #setGameOver} alone, without working out the status.
+     * This is what gets stored and sent, as the status is derived from the rest of
+     * the game and may rely on tablebases the reader does not have.
+     */
+    public boolean isMarkedGameOver() {
+        return isGameOver;
     }
 
     public void makeMove(ChessMove move) throws InvalidMoveException {
@@ -79,43 +244,179 @@ public class ChessGame implements Serializable {
         if (!validMoves(move.getStartPosition()).contains(move)) {
             throw new InvalidMoveException("Invalid move.");
         }
-        if (isInCheckmate(TeamColor.WHITE) || isInCheckmate(TeamColor.BLACK) || isInStalemate(TeamColor.WHITE) || isInStalemate(TeamColor.BLACK)) {
-            setGameOver(true);
+
+        long keyBefore = getKey();
+        boolean irreversible = piece.getPieceType() == ChessPiece.PieceType.PAWN
+                || board.getPiece(move.getEndPosition()) != null;
+        board.applyMove(move);
+        lastMove = move;
+        if (irreversible) {
+            halfmoveClock = 0;
+            historySize = 0;
+        } else {
+            halfmoveClock++;
+            appendHistory(keyBefore);
         }
 
-        // Handle en passant
-        if (piece.getPieceType() == ChessPiece.PieceType.PAWN) {
-            if (Math.abs(move.getStartPosition().getCol() - move.getEndPosition().getCol()) == 1 &&
-                    board.getPiece(move.getEndPosition()) == null) {
-                ChessPosition capturedPawnPosition = new ChessPosition(move.getStartPosition().getRow(), move.getEndPosition().getCol());
-                board.addPiece(capturedPawnPosition, null);
-            }
+        if (teamTurn == TeamColor.BLACK) {
+            fullmoveNumber++;
         }
+        teamTurn = (teamTurn == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE;
+        status = null;
+    }
 
-        // Handle castling
-        if (piece.getPieceType() == ChessPiece.PieceType.KING &&
-                Math.abs(move.getStartPosition().getCol() - move.getEndPosition().getCol()) == 2) {
-            int rookStartCol = move.getEndPosition().getCol() > move.getStartPosition().getCol() ? 8 : 1;
-            int rookEndCol = move.getEndPosition().getCol() > move.getStartPosition().getCol() ? 6 : 4;
-            ChessPosition rookStart = new ChessPosition(move.getStartPosition().getRow(), rookStartCol);
-            ChessPosition rookEnd = new ChessPosition(move.getStartPosition().getRow(), rookEndCol);
+    /**
+     * Counts the leaf nodes of the legal move tree {@code depth} plies deep from the
+     * current position. The board is walked in place and left as it was found.
+     */
+    public long perft(int depth) {
+        MoveList[] buffers = new MoveList[depth + 1];
+        for (int i = 1; i <= depth; i++) {
+            buffers[i] = new MoveList();
+        }
+        return perft(board, teamTurn, lastMove == null ? Move.NONE : Move.encode(lastMove), depth, buffers);
+    }
 
-            ChessPiece rook = board.getPiece(rookStart);
-            board.addPiece(rookEnd, rook);
-            board.addPiece(rookStart, null);
+    /**
+     * Like {@link #perft(int)}, but with the root moves split across {@code threads}
+     * workers, each walking its own copy of the board.
+     */
+    public long perft(int depth, int threads) {
+        if (depth == 0) {
+            return 1;
+        }
+        long nodes = 0;
+        for (long count : divide(depth, threads).values()) {
+            nodes += count;
         }
+        return nodes;
+    }
 
-        board.addPiece(move.getEndPosition(), piece);
-        board.addPiece(move.getStartPosition(), null);
+    /**
+     * Leaf counts {@code depth} plies deep below each legal root move, in generation
+     * order. The root moves are searched in parallel on a ForkJoinPool.
+     */
+    public Map<ChessMove, Long> divide(int depth, int threads) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("Depth must be at least 1");
+        }
+        int previous = lastMove == null ? Move.NONE : Move.encode(lastMove);
+        MoveList rootMoves = new MoveList();
+        LegalMoveGenerator.generate(board, teamTurn, previous, rootMoves);
+
+        TeamColor opponent = MoveGenerator.opponent(teamTurn);
+        List<Callable<Long>> tasks = new ArrayList<>(rootMoves.size());
+        for (int i = 0; i < rootMoves.size(); i++) {
+            int move = rootMoves.get(i);
+            ChessBoard rootBoard = board.copy();
+            tasks.add(() -> {
+                MoveList[] buffers = new MoveList[depth];
+                for (int ply = 1; ply < depth; ply++) {
+                    buffers[ply] = new MoveList();
+                }
+                rootBoard.doMove(Move.from(move), Move.to(move), Move.promotion(move));
+                return perft(rootBoard, opponent, move, depth - 1, buffers);
+            });
+        }
 
-        if (move.getPromotionPiece() != null) {
-            board.addPiece(move.getEndPosition(), new ChessPiece(piece.getTeamColor(), move.getPromotionPiece()));
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        try {
+            List<Future<Long>> results = pool.invokeAll(tasks);
+            Map<ChessMove, Long> divide = new LinkedHashMap<>();
+            for (int i = 0; i < rootMoves.size(); i++) {
+                divide.put(Move.toChessMove(rootMoves.get(i)), results.get(i).get());
+            }
+            return divide;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while counting moves", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Move counting failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
         }
+    }
 
-        lastMove = move;
-        piece.setHasMoved(true);
+    private static long perft(ChessBoard board, TeamColor color, int lastMove, int depth, MoveList[] buffers) {
+        if (depth == 0) {
+            return 1;
+        }
+        MoveList moves = buffers[depth];
+        moves.clear();
+        LegalMoveGenerator.generate(board, color, lastMove, moves);
+        if (depth == 1) {
+            return moves.size();
+        }
+        TeamColor opponent = MoveGenerator.opponent(color);
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            board.doMove(Move.from(move), Move.to(move), Move.promotion(move));
+            nodes += perft(board, opponent, move, depth - 1, buffers);
+            board.undoMove();
+        }
+        return nodes;
+    }
 
-        teamTurn = (teamTurn == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE;
+    private void appendHistory(long key) {
+        if (historySize == positionHistory.length) {
+            positionHistory = Arrays.copyOf(positionHistory, Math.max(16, historySize * 2));
+        }
+        positionHistory[historySize++] = key;
+    }
+
+    /**
+     * How many times the current position has occurred, counting this time. Only
+     * positions with the same side to move since the last pawn move or capture are
+     * compared, so this looks at no more than 50 keys.
+     */
+    private int repetitionCount() {
+        long key = getKey();
+        int count = 1;
+        for (int i = historySize - 2; i >= 0; i -= 2) {
+            if (positionHistory[i] == key) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    public void setHalfmoveClock(int halfmoveClock) {
+        this.halfmoveClock = halfmoveClock;
+        status = null;
+    }
+
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    public void setFullmoveNumber(int fullmoveNumber) {
+        this.fullmoveNumber = fullmoveNumber;
+    }
+
+    /**
+     * Plies played since the starting position, worked out from the move number and
+     * the side to move.
+     */
+    public int getPly() {
+        return (fullmoveNumber - 1) * 2 + (teamTurn == TeamColor.BLACK ? 1 : 0);
+    }
+
+    /**
+     * Keys of the earlier positions that could still repeat, oldest first.
+     */
+    public long[] getPositionHistory() {
+        return Arrays.copyOf(positionHistory, historySize);
+    }
+
+    public void setPositionHistory(long[] keys) {
+        positionHistory = keys.clone();
+        historySize = keys.length;
+        status = null;
     }
 
     public boolean isInCheck(TeamColor teamColor) {
@@ -129,14 +430,19 @@ public class ChessGame implements Serializable {
         }
 
         TeamColor oppositeColor = (teamColor == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE;
-        for (Map.Entry<ChessPosition, ChessPiece> entry : board.getBoard().entrySet()) {
-            ChessPiece piece = entry.getValue();
-            if (piece != null && piece.getTeamColor() == oppositeColor) {
-                Collection<ChessMove> moves = piece.pieceMoves(board, entry.getKey(), lastMove);
-                for (ChessMove move : moves) {
-                    if (move.getEndPosition().equals(kingPosition)) {
-                        return true;
-                    }
+        if (moveGenerationMode != MoveGenerationMode.REFERENCE) {
+            int kingSquare = ChessBoard.squareIndex(kingPosition.getRow(), kingPosition.getCol());
+            return board.isSquareAttacked(kingSquare, oppositeColor);
+        }
+        long enemies = board.getOccupancy(oppositeColor);
+        while (enemies != 0) {
+            int square = Long.numberOfTrailingZeros(enemies);
+            enemies &= enemies - 1;
+            ChessPiece piece = board.getPiece(square);
+            Collection<ChessMove> moves = piece.pieceMoves(board, toPosition(square), lastMove);
+            for (ChessMove move : moves) {
+                if (move.getEndPosition().equals(kingPosition)) {
+                    return true;
                 }
             }
         }
@@ -145,69 +451,94 @@ public class ChessGame implements Serializable {
     }
 
     public boolean isInCheckmate(TeamColor teamColor) {
-        if (!isInCheck(teamColor)) {
-            return false;
-        }
-
-        for (Map.Entry<ChessPosition, ChessPiece> entry : board.getBoard().entrySet()) {
-            ChessPiece piece = entry.getValue();
-            if (piece != null && piece.getTeamColor() == teamColor) {
-                Collection<ChessMove> moves = validMoves(entry.getKey());
-                for (ChessMove move : moves) {
-                    ChessBoard clonedBoard = board.clone();
-                    clonedBoard.addPiece(move.getEndPosition(), piece);
-                    clonedBoard.addPiece(move.getStartPosition(), null);
-                    if (!isInCheck(clonedBoard, teamColor)) {
-                        return false;
-                    }
-                }
-            }
-        }
-
-        return true;
+        return isInCheck(teamColor) && !hasValidMove(teamColor);
     }
 
     public boolean isInStalemate(TeamColor teamColor) {
-        if (isInCheck(teamColor)) {
-            return false;
-        }
+        return !isInCheck(teamColor) && !hasValidMove(teamColor);
+    }
 
-        for (Map.Entry<ChessPosition, ChessPiece> entry : board.getBoard().entrySet()) {
-            ChessPiece piece = entry.getValue();
-            if (piece != null && piece.getTeamColor() == teamColor) {
-                Collection<ChessMove> moves = validMoves(entry.getKey());
-                if (!moves.isEmpty()) {
-                    return false;
-                }
+    private boolean hasValidMove(TeamColor teamColor) {
+        if (moveGenerationMode == MoveGenerationMode.LEGAL) {
+            return LegalMoveGenerator.hasLegalMove(board, teamColor, lastMove);
+        }
+        long pieces = board.getOccupancy(teamColor);
+        while (pieces != 0) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            if (!validMoves(toPosition(square)).isEmpty()) {
+                return true;
             }
         }
-
-        return true;
+        return false;
     }
 
     private ChessPosition findKingPosition(ChessBoard board, TeamColor teamColor) {
-        for (Map.Entry<ChessPosition, ChessPiece> entry : board.getBoard().entrySet()) {
-            ChessPiece piece = entry.getValue();
-            if (piece != null && piece.getPieceType() == ChessPiece.PieceType.KING && piece.getTeamColor() == teamColor) {
-                return entry.getKey();
-            }
+        long kings = board.getPieces(teamColor, ChessPiece.PieceType.KING);
+        if (kings == 0) {
+            return null;
         }
-        return null;
+        return toPosition(Long.numberOfTrailingZeros(kings));
+    }
+
+    private static ChessPosition toPosition(int square) {
+        return ChessPosition.of(square);
     }
 
     public void setBoard(ChessBoard board) {
         this.board = board;
+        historySize = 0;
+        halfmoveClock = 0;
+        status = null;
     }
 
     public ChessBoard getBoard() {
         return this.board;
     }
 
+    /**
+     * Zobrist key of the position: pieces, side to move, castling rights and the en
+     * passant file. The file only counts when a pawn is actually in place to capture,
+     * so positions that play the same hash the same.
+     */
+    public long getKey() {
+        long key = board.getKey();
+        if (teamTurn == TeamColor.BLACK) {
+            key ^= Zobrist.blackToMove();
+        }
+        int file = enPassantFile();
+        if (file >= 0) {
+            key ^= Zobrist.enPassant(file);
+        }
+        return key;
+    }
+
+    private int enPassantFile() {
+        if (lastMove == null) {
+            return -1;
+        }
+        ChessPosition end = lastMove.getEndPosition();
+        ChessPiece moved = board.getPiece(end);
+        if (moved == null || moved.getPieceType() != ChessPiece.PieceType.PAWN || moved.getTeamColor() == teamTurn
+                || Math.abs(lastMove.getStartPosition().getRow() - end.getRow()) != 2) {
+            return -1;
+        }
+        for (int col = end.getCol() - 1; col <= end.getCol() + 1; col += 2) {
+            ChessPiece neighbour = board.getPiece(end.getRow(), col);
+            if (neighbour != null && neighbour.getPieceType() == ChessPiece.PieceType.PAWN
+                    && neighbour.getTeamColor() == teamTurn) {
+                return end.getCol() - 1;
+            }
+        }
+        return -1;
+    }
+
     public ChessMove getLastMove() {
         return lastMove;
     }
 
     public void setLastMove(ChessMove lastMove) {
         this.lastMove = lastMove;
+        status = null;
     }
 }
\ No newline at end of file
@@ -0,0 +1,171 @@
+package chess;
+
+import chess.movegen.Move;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Compact binary form of a {@link ChessGame} for storage. The first byte is the
+ * format version, so that older rows can still be read after the layout changes.
+ *
+ * <p>Version 1 is a flags byte (black to move, game over, last move present), the
+ * 64 squares packed two to a byte with 0 for empty and otherwise the piece index
+ * plus one, a 64-bit mask of the squares holding pieces that have moved, the last
+ * move as a short if there is one, both move clocks as unsigned shorts, and the
+ * position history as a count followed by the keys. The starting position takes
+ * 48 bytes.
+ */
+public final class ChessGameCodec {
+    public static final int VERSION = 1;
+
+    private static final int BLACK_TO_MOVE = 1;
+    private static final int GAME_OVER = 1 << 1;
+    private static final int HAS_LAST_MOVE = 1 << 2;
+    private static final int BOARD_BYTES = 32;
+    private static final int MAX_SHORT = 0xFFFF;
+
+    private static final ChessGame.TeamColor[] COLORS = ChessGame.TeamColor.values();
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    private ChessGameCodec() {
+    }
+
+    /**
+     * @throws IllegalArgumentException if a move clock or the history is too large
+     *                                  for the format
+     */
+    public static byte[] encode(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        ChessMove lastMove = game.getLastMove();
+        long[] history = game.getPositionHistory();
+        int halfmoveClock = checkShort(game.getHalfmoveClock(), "Halfmove clock");
+        int fullmoveNumber = checkShort(game.getFullmoveNumber(), "Fullmove number");
+        checkShort(history.length, "Position history length");
+
+        int size = 2 + BOARD_BYTES + 8 + (lastMove != null ? 2 : 0) + 4 + 2 + history.length * 8;
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.put((byte) VERSION);
+        int flags = 0;
+        if (game.getTeamTurn() == ChessGame.TeamColor.BLACK) {
+            flags |= BLACK_TO_MOVE;
+        }
+        if (game.isMarkedGameOver()) {
+            flags |= GAME_OVER;
+        }
+        if (lastMove != null) {
+            flags |= HAS_LAST_MOVE;
+        }
+        out.put((byte) flags);
+
+        long moved = 0;
+        for (int square = 0; square < 64; square += 2) {
+            out.put((byte) (code(board.getPiece(square)) | code(board.getPiece(square + 1)) << 4));
+        }
+        for (long pieces = board.getOccupancy(); pieces != 0; pieces &= pieces - 1) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            if (board.getPiece(square).hasMoved()) {
+                moved |= 1L << square;
+            }
+        }
+        out.putLong(moved);
+
+        if (lastMove != null) {
+            out.putShort((short) encodeMove(lastMove));
+        }
+        out.putShort((short) halfmoveClock);
+        out.putShort((short) fullmoveNumber);
+        out.putShort((short) history.length);
+        for (long key : history) {
+            out.putLong(key);
+        }
+        return out.array();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the bytes are not a game in a known version
+     */
+    public static ChessGame decode(byte[] bytes) {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        try {
+            int version = in.get();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unknown game encoding version " + version);
+            }
+            int flags = in.get();
+
+            ChessBoard board = new ChessBoard();
+            byte[] squares = new byte[BOARD_BYTES];
+            in.get(squares);
+            long moved = in.getLong();
+            for (int square = 0; square < 64; square++) {
+                int code = squares[square >> 1] >> ((square & 1) * 4) & 0xF;
+                if (code == 0) {
+                    continue;
+                }
+                if (code > COLORS.length * TYPES.length) {
+                    throw new IllegalArgumentException("Invalid piece code " + code);
+                }
+                ChessPiece piece = new ChessPiece(COLORS[(code - 1) / TYPES.length], TYPES[(code - 1) % TYPES.length]);
+                piece.setHasMoved((moved & (1L << square)) != 0);
+                board.addPiece(ChessPosition.of(square), piece);
+            }
+
+            ChessMove lastMove = (flags & HAS_LAST_MOVE) != 0 ? decodeMove(in.getShort()) : null;
+            int halfmoveClock = in.getShort() & MAX_SHORT;
+            int fullmoveNumber = in.getShort() & MAX_SHORT;
+            long[] history = new long[in.getShort() & MAX_SHORT];
+            for (int i = 0; i < history.length; i++) {
+                history[i] = in.getLong();
+            }
+            if (in.hasRemaining()) {
+                throw new IllegalArgumentException("Unexpected trailing bytes");
+            }
+
+            return new ChessGame(board,
+                    (flags & BLACK_TO_MOVE) != 0 ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE,
+                    lastMove, (flags & GAME_OVER) != 0, halfmoveClock, fullmoveNumber, history);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated game encoding", e);
+        }
+    }
+
+    private static int code(ChessPiece piece) {
+        return piece == null ? 0 : ChessBoard.pieceIndex(piece.getTeamColor(), piece.getPieceType()) + 1;
+    }
+
+    /**
+     * Packs a move into 15 bits, laid out as {@link Move#encode(ChessMove)} without
+     * any flags.
+     */
+    public static int encodeMove(ChessMove move) {
+        return Move.withoutFlags(Move.encode(move));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the bits are not a move without flags, or
+     *                                  promote to a king or pawn or off the last rank
+     */
+    public static ChessMove decodeMove(int bits) {
+        int move = bits & MAX_SHORT;
+        int promotion = move >>> 12;
+        if (move != Move.withoutFlags(move) || promotion > TYPES.length
+                || promotion != 0 && !isPromotion(TYPES[promotion - 1], Move.to(move))) {
+            throw new IllegalArgumentException("Invalid move code " + move);
+        }
+        return Move.toChessMove(move);
+    }
+
+    // Pawns promote on the first or last rank, to anything but a king or another pawn
+    private static boolean isPromotion(ChessPiece.PieceType type, int to) {
+        int rank = to / 8;
+        return (rank == 0 || rank == 7) && type != ChessPiece.PieceType.KING && type != ChessPiece.PieceType.PAWN;
+    }
+
+    private static int checkShort(int value, String name) {
+        if (value < 0 || value > MAX_SHORT) {
+            throw new IllegalArgumentException(name + " out of range: " + value);
+        }
+        return value;
+    }
+}
@@ -1,6 +1,25 @@
 package chess;
 
 public class ChessMove {
+    private static final int PROMOTION_SLOTS = ChessPiece.PieceType.values().length + 1;
+    // Every from/to pair without promotion, plus promotions onto the last rank
+    private static final ChessMove[] MOVES = new ChessMove[64 * 64 * PROMOTION_SLOTS];
+
+    static {
+        for (int from = 0; from < 64; from++) {
+            for (int to = 0; to < 64; to++) {
+                MOVES[index(from, to, null)] = new ChessMove(ChessPosition.of(from), ChessPosition.of(to), null);
+                boolean whitePromotion = from / 8 == 6 && to / 8 == 7;
+                boolean blackPromotion = from / 8 == 1 && to / 8 == 0;
+                if ((whitePromotion || blackPromotion) && Math.abs(from % 8 - to % 8) <= 1) {
+                    for (ChessPiece.PieceType type : ChessPiece.PieceType.values()) {
+                        MOVES[index(from, to, type)] = new ChessMove(ChessPosition.of(from), ChessPosition.of(to), type);
+                    }
+                }
+            }
+        }
+    }
+
     private final ChessPosition startPosition;
     private final ChessPosition endPosition;
     private final ChessPiece.PieceType promotionPiece;
@@ -11,6 +30,34 @@ public class ChessMove {
         this.promotionPiece = promotionPiece;
     }
 
+    /**
+     * Returns a shared instance for on-board moves, falling back to a new one for
+     * off-board positions or promotions a pawn could not make.
+     */
+    public static ChessMove of(ChessPosition startPosition, ChessPosition endPosition,
+                               ChessPiece.PieceType promotionPiece) {
+        if (!ChessBoard.isOnBoard(startPosition.getRow(), startPosition.getCol())
+                || !ChessBoard.isOnBoard(endPosition.getRow(), endPosition.getCol())) {
+            return new ChessMove(startPosition, endPosition, promotionPiece);
+        }
+        int from = ChessBoard.squareIndex(startPosition.getRow(), startPosition.getCol());
+        int to = ChessBoard.squareIndex(endPosition.getRow(), endPosition.getCol());
+        return of(from, to, promotionPiece);
+    }
+
+    public static ChessMove of(int from, int to, ChessPiece.PieceType promotionPiece) {
+        ChessMove move = MOVES[index(from, to, promotionPiece)];
+        if (move == null) {
+            return new ChessMove(ChessPosition.of(from), ChessPosition.of(to), promotionPiece);
+        }
+        return move;
+    }
+
+    private static int index(int from, int to, ChessPiece.PieceType promotionPiece) {
+        int slot = promotionPiece == null ? 0 : promotionPiece.ordinal() + 1;
+        return (from * 64 + to) * PROMOTION_SLOTS + slot;
+    }
+
     public ChessPosition getStartPosition() {
         return startPosition;
     }
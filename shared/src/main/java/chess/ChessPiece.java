@@ -74,24 +74,25 @@ public class ChessPiece {
                 {1, 1}, {-1, -1}, {1, -1}, {-1, 1}
         };
         for (int[] direction : directions) {
-            ChessPosition newPos = new ChessPosition(myPosition.getRow() + direction[0], myPosition.getCol() + direction[1]);
+            ChessPosition newPos = ChessPosition.of(myPosition.getRow() + direction[0], myPosition.getCol() + direction[1]);
             if (isValidPosition(newPos) && canMoveTo(board, myPosition, newPos)) {
-                moves.add(new ChessMove(myPosition, newPos, null));
+                moves.add(ChessMove.of(myPosition, newPos, null));
             }
         }
 
-        // Castling
-        if (!hasMoved) {
+        // Castling, only from the king's starting square
+        int homeRow = (pieceColor == ChessGame.TeamColor.WHITE) ? 1 : 8;
+        if (!hasMoved && myPosition.getRow() == homeRow && myPosition.getCol() == 5) {
             // Kingside castling
-            ChessPosition kingsideRookPosition = new ChessPosition(myPosition.getRow(), 8);
+            ChessPosition kingsideRookPosition = ChessPosition.of(myPosition.getRow(), 8);
             if (canCastle(board, myPosition, kingsideRookPosition)) {
-                moves.add(new ChessMove(myPosition, new ChessPosition(myPosition.getRow(), myPosition.getCol() + 2), null));
+                moves.add(ChessMove.of(myPosition, ChessPosition.of(myPosition.getRow(), myPosition.getCol() + 2), null));
             }
 
             // Queenside castling
-            ChessPosition queensideRookPosition = new ChessPosition(myPosition.getRow(), 1);
+            ChessPosition queensideRookPosition = ChessPosition.of(myPosition.getRow(), 1);
             if (canCastle(board, myPosition, queensideRookPosition)) {
-                moves.add(new ChessMove(myPosition, new ChessPosition(myPosition.getRow(), myPosition.getCol() - 2), null));
+                moves.add(ChessMove.of(myPosition, ChessPosition.of(myPosition.getRow(), myPosition.getCol() - 2), null));
             }
         }
     }
@@ -117,9 +118,9 @@ public class ChessPiece {
                 {1, 2}, {1, -2}, {-1, 2}, {-1, -2}
         };
         for (int[] jump : jumps) {
-            ChessPosition newPos = new ChessPosition(myPosition.getRow() + jump[0], myPosition.getCol() + jump[1]);
+            ChessPosition newPos = ChessPosition.of(myPosition.getRow() + jump[0], myPosition.getCol() + jump[1]);
             if (isValidPosition(newPos) && canMoveTo(board, myPosition, newPos)) {
-                moves.add(new ChessMove(myPosition, newPos, null));
+                moves.add(ChessMove.of(myPosition, newPos, null));
             }
         }
     }
@@ -137,22 +138,22 @@ public class ChessPiece {
         int promotionRow = (pieceColor == ChessGame.TeamColor.WHITE) ? 8 : 1;
 
         // Move forward one step
-        ChessPosition oneStep = new ChessPosition(myPosition.getRow() + direction, myPosition.getCol());
+        ChessPosition oneStep = ChessPosition.of(myPosition.getRow() + direction, myPosition.getCol());
         if (isValidPosition(oneStep) && board.getPiece(oneStep) == null) {
             addPawnMove(myPosition, oneStep, promotionRow, moves);
 
             // Move forward two steps from starting position
             if (myPosition.getRow() == startRow) {
-                ChessPosition twoSteps = new ChessPosition(myPosition.getRow() + 2 * direction, myPosition.getCol());
+                ChessPosition twoSteps = ChessPosition.of(myPosition.getRow() + 2 * direction, myPosition.getCol());
                 if (board.getPiece(twoSteps) == null) {
-                    moves.add(new ChessMove(myPosition, twoSteps, null));
+                    moves.add(ChessMove.of(myPosition, twoSteps, null));
                 }
             }
         }
 
         // Capture diagonally
         for (int colOffset : new int[]{-1, 1}) {
-            ChessPosition capturePos = new ChessPosition(myPosition.getRow() + direction, myPosition.getCol() + colOffset);
+            ChessPosition capturePos = ChessPosition.of(myPosition.getRow() + direction, myPosition.getCol() + colOffset);
             if (isValidPosition(capturePos)) {
                 ChessPiece pieceToCapture = board.getPiece(capturePos);
                 if (pieceToCapture != null && pieceToCapture.getTeamColor() != pieceColor) {
@@ -170,11 +171,11 @@ public class ChessPiece {
                 if (lastMovedPiece != null && lastMovedPiece.getPieceType() == PieceType.PAWN &&
                         lastMovedPiece.getTeamColor() != pieceColor &&
                         Math.abs(lastMove.getStartPosition().getRow() - lastMove.getEndPosition().getRow()) == 2) {
-                    ChessPosition capturePosition = new ChessPosition(
+                    ChessPosition capturePosition = ChessPosition.of(
                             myPosition.getRow() + direction,
                             lastMove.getEndPosition().getCol()
                     );
-                    moves.add(new ChessMove(myPosition, capturePosition, null));
+                    moves.add(ChessMove.of(myPosition, capturePosition, null));
                 }
             }
         }
@@ -182,28 +183,28 @@ public class ChessPiece {
 
     private void addPawnMove(ChessPosition from, ChessPosition to, int promotionRow, Collection<ChessMove> moves) {
         if (to.getRow() == promotionRow) {
-            moves.add(new ChessMove(from, to, PieceType.QUEEN));
-            moves.add(new ChessMove(from, to, PieceType.ROOK));
-            moves.add(new ChessMove(from, to, PieceType.BISHOP));
-            moves.add(new ChessMove(from, to, PieceType.KNIGHT));
+            moves.add(ChessMove.of(from, to, PieceType.QUEEN));
+            moves.add(ChessMove.of(from, to, PieceType.ROOK));
+            moves.add(ChessMove.of(from, to, PieceType.BISHOP));
+            moves.add(ChessMove.of(from, to, PieceType.KNIGHT));
         } else {
-            moves.add(new ChessMove(from, to, null));
+            moves.add(ChessMove.of(from, to, null));
         }
     }
 
     private void addMovesInDirections(ChessBoard board, ChessPosition myPosition, Collection<ChessMove> moves, int[][] directions) {
         for (int[] direction : directions) {
             for (int step = 1; step <= 7; step++) {
-                ChessPosition newPos = new ChessPosition(myPosition.getRow() + step * direction[0], myPosition.getCol() + step * direction[1]);
+                ChessPosition newPos = ChessPosition.of(myPosition.getRow() + step * direction[0], myPosition.getCol() + step * direction[1]);
                 if (!isValidPosition(newPos)) {
                     break;
                 }
                 ChessPiece pieceAtNewPos = board.getPiece(newPos);
                 if (pieceAtNewPos == null) {
-                    moves.add(new ChessMove(myPosition, newPos, null));
+                    moves.add(ChessMove.of(myPosition, newPos, null));
                 } else {
                     if (pieceAtNewPos.getTeamColor() != pieceColor) {
-                        moves.add(new ChessMove(myPosition, newPos, null));
+                        moves.add(ChessMove.of(myPosition, newPos, null));
                     }
                     break;
                 }
@@ -213,25 +214,25 @@ public class ChessPiece {
 
     private boolean canCastle(ChessBoard board, ChessPosition kingPosition, ChessPosition rookPosition) {
         ChessPiece rook = board.getPiece(rookPosition);
-        if (rook == null || rook.getPieceType() != PieceType.ROOK || rook.hasMoved()) {
+        if (rook == null || rook.getPieceType() != PieceType.ROOK || rook.getTeamColor() != pieceColor
+                || rook.hasMoved()) {
             return false;
         }
 
         int start = Math.min(kingPosition.getCol(), rookPosition.getCol());
         int end = Math.max(kingPosition.getCol(), rookPosition.getCol());
         for (int col = start + 1; col < end; col++) {
-            ChessPosition position = new ChessPosition(kingPosition.getRow(), col);
-            if (board.getPiece(position) != null) {
+            if (board.getPiece(kingPosition.getRow(), col) != null) {
                 return false;
             }
         }
 
-        // Check if the king is in check or passes through check
+        // Check if the king is in check, passes through check or lands in check
         ChessGame.TeamColor oppositeColor = (pieceColor == ChessGame.TeamColor.WHITE) ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
         int direction = kingPosition.getCol() < rookPosition.getCol() ? 1 : -1;
-        for (int col = kingPosition.getCol(); col != rookPosition.getCol(); col += direction) {
-            ChessPosition position = new ChessPosition(kingPosition.getRow(), col);
-            if (isSquareUnderAttack(board, position, oppositeColor)) {
+        for (int step = 0; step <= 2; step++) {
+            int square = ChessBoard.squareIndex(kingPosition.getRow(), kingPosition.getCol() + step * direction);
+            if (board.isSquareAttacked(square, oppositeColor)) {
                 return false;
             }
         }
@@ -239,21 +240,6 @@ public class ChessPiece {
         return true;
     }
 
-    private boolean isSquareUnderAttack(ChessBoard board, ChessPosition position, ChessGame.TeamColor attackingColor) {
-        for (ChessPosition pos : board.getBoard().keySet()) {
-            ChessPiece piece = board.getPiece(pos);
-            if (piece != null && piece.getTeamColor() == attackingColor && piece.getPieceType() != PieceType.KING) {
-                Collection<ChessMove> moves = piece.pieceMoves(board, pos, null);
-                for (ChessMove move : moves) {
-                    if (move.getEndPosition().equals(position)) {
-                        return true;
-                    }
-                }
-            }
-        }
-        return false;
-    }
-
     private boolean isValidPosition(ChessPosition position) {
         return position.getRow() >= 1 && position.getRow() <= 8 &&
                 position.getCol() >= 1 && position.getCol() <= 8;
@@ -0,0 +1,258 @@
+package chess;
+
+/**
+ * Reads and writes Forsyth-Edwards Notation straight into and out of a board.
+ * Castling rights map onto hasMoved for the kings and rooks, and the en passant
+ * square onto the double pawn push that allowed it.
+ */
+final class Fen {
+    private static final String PIECE_LETTERS = "kqbnrp";
+
+    private Fen() {
+    }
+
+    static ChessGame parse(CharSequence fen) {
+        Cursor cursor = new Cursor(fen);
+        ChessBoard board = new ChessBoard();
+        parsePlacement(cursor, board);
+
+        cursor.expectSpace();
+        ChessGame.TeamColor turn = switch (cursor.next()) {
+            case 'w' -> ChessGame.TeamColor.WHITE;
+            case 'b' -> ChessGame.TeamColor.BLACK;
+            default -> throw cursor.error("Expected side to move");
+        };
+
+        cursor.expectSpace();
+        applyCastlingRights(board, parseCastlingRights(cursor));
+
+        cursor.expectSpace();
+        ChessMove lastMove = parseEnPassant(cursor, turn);
+
+        int halfmoveClock = 0;
+        int fullmoveNumber = 1;
+        // The move clocks are optional
+        if (cursor.hasMore()) {
+            cursor.expectSpace();
+            if (cursor.hasMore()) {
+                halfmoveClock = cursor.nextNumber();
+                cursor.expectSpace();
+                fullmoveNumber = cursor.nextNumber();
+                cursor.skipSpaces();
+            }
+        }
+        if (cursor.hasMore()) {
+            throw cursor.error("Unexpected trailing characters");
+        }
+
+        return new ChessGame(board, turn, lastMove, false, halfmoveClock, fullmoveNumber, new long[0]);
+    }
+
+    static String format(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        StringBuilder fen = new StringBuilder(90);
+        for (int row = 8; row >= 1; row--) {
+            int empty = 0;
+            for (int col = 1; col <= 8; col++) {
+                ChessPiece piece = board.getPiece(row, col);
+                if (piece == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    fen.append(empty);
+                    empty = 0;
+                }
+                char letter = PIECE_LETTERS.charAt(piece.getPieceType().ordinal());
+                fen.append(piece.getTeamColor() == ChessGame.TeamColor.WHITE ? Character.toUpperCase(letter) : letter);
+            }
+            if (empty > 0) {
+                fen.append(empty);
+            }
+            if (row > 1) {
+                fen.append('/');
+            }
+        }
+
+        fen.append(game.getTeamTurn() == ChessGame.TeamColor.WHITE ? " w " : " b ");
+
+        int rights = board.getCastlingRights();
+        if (rights == 0) {
+            fen.append('-');
+        } else {
+            appendIf(fen, rights, Zobrist.WHITE_KINGSIDE, 'K');
+            appendIf(fen, rights, Zobrist.WHITE_QUEENSIDE, 'Q');
+            appendIf(fen, rights, Zobrist.BLACK_KINGSIDE, 'k');
+            appendIf(fen, rights, Zobrist.BLACK_QUEENSIDE, 'q');
+        }
+
+        fen.append(' ');
+        ChessMove lastMove = game.getLastMove();
+        ChessPiece moved = lastMove == null ? null : board.getPiece(lastMove.getEndPosition());
+        if (moved != null && moved.getPieceType() == ChessPiece.PieceType.PAWN
+                && Math.abs(lastMove.getStartPosition().getRow() - lastMove.getEndPosition().getRow()) == 2) {
+            ChessPosition end = lastMove.getEndPosition();
+            fen.append((char) ('a' + end.getCol() - 1));
+            fen.append((lastMove.getStartPosition().getRow() + end.getRow()) / 2);
+        } else {
+            fen.append('-');
+        }
+
+        fen.append(' ').append(game.getHalfmoveClock());
+        fen.append(' ').append(game.getFullmoveNumber());
+        return fen.toString();
+    }
+
+    private static void parsePlacement(Cursor cursor, ChessBoard board) {
+        for (int row = 8; row >= 1; row--) {
+            int col = 1;
+            while (col <= 8) {
+                char c = cursor.next();
+                if (c >= '1' && c <= '8') {
+                    col += c - '0';
+                    continue;
+                }
+                int type = PIECE_LETTERS.indexOf(Character.toLowerCase(c));
+                if (type < 0) {
+                    throw cursor.error("Unexpected '" + c + "' in piece placement");
+                }
+                ChessGame.TeamColor color = Character.isUpperCase(c) ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+                ChessPiece piece = new ChessPiece(color, ChessPiece.PieceType.values()[type]);
+                board.addPiece(ChessPosition.of(row, col), piece);
+                col++;
+            }
+            if (col != 9) {
+                throw cursor.error("Rank " + row + " does not have 8 squares");
+            }
+            if (row > 1 && cursor.next() != '/') {
+                throw cursor.error("Expected '/' after rank " + row);
+            }
+        }
+    }
+
+    private static int parseCastlingRights(Cursor cursor) {
+        if (cursor.peek() == '-') {
+            cursor.next();
+            return 0;
+        }
+        int rights = 0;
+        while (cursor.hasMore() && cursor.peek() != ' ') {
+            rights |= switch (cursor.next()) {
+                case 'K' -> Zobrist.WHITE_KINGSIDE;
+                case 'Q' -> Zobrist.WHITE_QUEENSIDE;
+                case 'k' -> Zobrist.BLACK_KINGSIDE;
+                case 'q' -> Zobrist.BLACK_QUEENSIDE;
+                default -> throw cursor.error("Unexpected castling right");
+            };
+        }
+        return rights;
+    }
+
+    /**
+     * Kings and rooks count as unmoved only where a castling right needs them to be.
+     */
+    private static void applyCastlingRights(ChessBoard board, int rights) {
+        long pieces = board.getOccupancy();
+        while (pieces != 0) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            ChessPiece piece = board.getPiece(square);
+            if (piece.getPieceType() == ChessPiece.PieceType.KING) {
+                boolean white = piece.getTeamColor() == ChessGame.TeamColor.WHITE;
+                int kingRights = white
+                        ? Zobrist.WHITE_KINGSIDE | Zobrist.WHITE_QUEENSIDE
+                        : Zobrist.BLACK_KINGSIDE | Zobrist.BLACK_QUEENSIDE;
+                piece.setHasMoved(square != (white ? 4 : 60) || (rights & kingRights) == 0);
+            } else if (piece.getPieceType() == ChessPiece.PieceType.ROOK) {
+                boolean unmoved = (square == 7 && (rights & Zobrist.WHITE_KINGSIDE) != 0)
+                        || (square == 0 && (rights & Zobrist.WHITE_QUEENSIDE) != 0)
+                        || (square == 63 && (rights & Zobrist.BLACK_KINGSIDE) != 0)
+                        || (square == 56 && (rights & Zobrist.BLACK_QUEENSIDE) != 0);
+                piece.setHasMoved(!unmoved);
+            }
+        }
+    }
+
+    private static ChessMove parseEnPassant(Cursor cursor, ChessGame.TeamColor turn) {
+        if (cursor.peek() == '-') {
+            cursor.next();
+            return null;
+        }
+        char file = cursor.next();
+        char rank = cursor.next();
+        // The square is behind a pawn of the side not on move
+        if (file < 'a' || file > 'h' || rank != (turn == ChessGame.TeamColor.WHITE ? '6' : '3')) {
+            throw cursor.error("Invalid en passant square");
+        }
+        int col = file - 'a' + 1;
+        return turn == ChessGame.TeamColor.WHITE
+                ? ChessMove.of(ChessPosition.of(7, col), ChessPosition.of(5, col), null)
+                : ChessMove.of(ChessPosition.of(2, col), ChessPosition.of(4, col), null);
+    }
+
+    private static void appendIf(StringBuilder fen, int rights, int flag, char letter) {
+        if ((rights & flag) != 0) {
+            fen.append(letter);
+        }
+    }
+
+    private static final class Cursor {
+        private final CharSequence text;
+        private int index;
+
+        Cursor(CharSequence text) {
+            this.text = text;
+        }
+
+        boolean hasMore() {
+            return index < text.length();
+        }
+
+        char peek() {
+            if (!hasMore()) {
+                throw error("Unexpected end of FEN");
+            }
+            return text.charAt(index);
+        }
+
+        char next() {
+            char c = peek();
+            index++;
+            return c;
+        }
+
+        void expectSpace() {
+            if (next() != ' ') {
+                throw error("Expected a space");
+            }
+            skipSpaces();
+        }
+
+        void skipSpaces() {
+            while (hasMore() && text.charAt(index) == ' ') {
+                index++;
+            }
+        }
+
+        int nextNumber() {
+            int start = index;
+            int value = 0;
+            while (hasMore() && text.charAt(index) >= '0' && text.charAt(index) <= '9') {
+                int digit = text.charAt(index) - '0';
+                if (value > (Integer.MAX_VALUE - digit) / 10) {
+                    throw error("Number out of range");
+                }
+                value = value * 10 + digit;
+                index++;
+            }
+            if (index == start) {
+                throw error("Expected a number");
+            }
+            return value;
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at index " + index + " of FEN: " + text);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Computer opponent. Searches a private copy of the game's board, so the game itself
+ * can keep being read while the engine thinks. One engine can serve many games at
+ * once; they all share its transposition table and its scheduler's threads.
+ */
+public class Engine {
+    public static final int DEFAULT_HASH_MEGABYTES = 16;
+
+    private final TranspositionTable table;
+    private final EngineScheduler scheduler;
+    private volatile OpeningBook openingBook;
+    private final ExecutorService helpers = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "engine-helper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public Engine() {
+        this(new TranspositionTable(DEFAULT_HASH_MEGABYTES), new EngineScheduler(1));
+    }
+
+    public Engine(TranspositionTable table, EngineScheduler scheduler) {
+        this.table = table;
+        this.scheduler = scheduler;
+    }
+
+    public TranspositionTable getTranspositionTable() {
+        return table;
+    }
+
+    public EngineScheduler getScheduler() {
+        return scheduler;
+    }
+
+    public OpeningBook getOpeningBook() {
+        return openingBook;
+    }
+
+    public void setOpeningBook(OpeningBook openingBook) {
+        this.openingBook = openingBook;
+    }
+
+    /**
+     * The move to play: a book move while the game is still in the opening book,
+     * otherwise the result of a search. Returns null when there is no legal move.
+     */
+    public ChessMove chooseMove(ChessGame game, SearchLimits limits) {
+        OpeningBook book = openingBook;
+        if (book != null) {
+            ChessMove move = book.pickMove(game, ThreadLocalRandom.current());
+            if (move != null) {
+                return move;
+            }
+        }
+        return search(game, limits).move();
+    }
+
+    /**
+     * Searches with as many threads as the scheduler can spare. If every engine thread
+     * is busy it waits for one, and the wait comes out of the time limit. When none
+     * frees up in time, it searches one ply deep on the calling thread instead, so a
+     * move still comes back within the limit.
+     */
+    public SearchResult search(ChessGame game, SearchLimits limits) {
+        long start = System.nanoTime();
+        EngineScheduler.Lease lease;
+        try {
+            lease = scheduler.acquire(limits.timeMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an engine thread", e);
+        }
+        if (lease == null) {
+            return search(game, new SearchLimits(1, limits.nodes(), 1), 1);
+        }
+        try (lease) {
+            long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            SearchLimits remaining = new SearchLimits(Math.max(1, limits.timeMillis() - waited), limits.nodes(),
+                    limits.depth());
+            return search(game, remaining, lease.threads());
+        }
+    }
+
+    /**
+     * Lazy SMP search: {@code threads - 1} helpers search the same position and share
+     * what they find through the transposition table, while the calling thread runs
+     * the search whose move is played. The scheduler is bypassed.
+     */
+    public SearchResult search(ChessGame game, SearchLimits limits, int threads) {
+        table.newSearch();
+        AtomicBoolean stop = new AtomicBoolean();
+        List<Future<SearchResult>> futures = new ArrayList<>();
+        for (int helper = 1; helper < threads; helper++) {
+            futures.add(helpers.submit(new Search(game, limits, table, stop, helper)::run));
+        }
+
+        SearchResult result;
+        try {
+            result = new Search(game, limits, table, stop, 0).run();
+        } finally {
+            stop.set(true);
+        }
+
+        long nodes = result.nodes();
+        try {
+            for (Future<SearchResult> future : futures) {
+                nodes += future.get().nodes();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while stopping helper searches", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Helper search failed", e.getCause());
+        }
+        return new SearchResult(result.move(), result.score(), result.depth(), nodes);
+    }
+}
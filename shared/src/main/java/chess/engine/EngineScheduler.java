@@ -0,0 +1,95 @@
+package chess.engine;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shares a fixed number of engine threads between games. Each search takes a lease
+ * for its threads, and the more games are active the fewer threads each one asks
+ * for, so engine games never crowd out human ones.
+ */
+public final class EngineScheduler {
+    private final int maxThreads;
+    private final Semaphore permits;
+    private volatile int activeGames = 1;
+
+    public EngineScheduler(int maxThreads) {
+        if (maxThreads < 1) {
+            throw new IllegalArgumentException("The scheduler needs at least one thread");
+        }
+        this.maxThreads = maxThreads;
+        this.permits = new Semaphore(maxThreads, true);
+    }
+
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    public int getActiveGames() {
+        return activeGames;
+    }
+
+    public void setActiveGames(int activeGames) {
+        this.activeGames = Math.max(1, activeGames);
+    }
+
+    /**
+     * Threads a search would be given right now if none were in use.
+     */
+    public int threadsPerSearch() {
+        return Math.max(1, maxThreads / activeGames);
+    }
+
+    /**
+     * Waits for one thread, then takes as many more as this search's share allows
+     * without waiting. The calling thread counts as the first one.
+     */
+    public Lease acquire() throws InterruptedException {
+        permits.acquire();
+        return lease();
+    }
+
+    /**
+     * Like {@link #acquire()}, but gives up after {@code timeoutMillis} and returns null.
+     */
+    public Lease acquire(long timeoutMillis) throws InterruptedException {
+        if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+            return null;
+        }
+        return lease();
+    }
+
+    private Lease lease() {
+        int threads = 1;
+        int wanted = threadsPerSearch();
+        while (threads < wanted && permits.tryAcquire()) {
+            threads++;
+        }
+        return new Lease(threads);
+    }
+
+    public int availableThreads() {
+        return permits.availablePermits();
+    }
+
+    public final class Lease implements AutoCloseable {
+        private final int threads;
+        private boolean closed;
+
+        private Lease(int threads) {
+            this.threads = threads;
+        }
+
+        public int threads() {
+            return threads;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                permits.release(threads);
+            }
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.movegen.LegalMoveGenerator;
+import chess.movegen.Move;
+import chess.movegen.MoveList;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Opening book read straight from a memory-mapped file. The file uses the Polyglot
+ * layout of sorted, big-endian 16-byte entries (key, move, weight, learn), but the
+ * keys are this project's {@link ChessGame#getKey()} rather than Polyglot's own.
+ * Lookups binary-search the mapping in place, so any number of games can share one
+ * book without copying it onto the heap.
+ */
+public final class OpeningBook {
+    private static final int ENTRY_BYTES = 16;
+    // Polyglot promotion codes: 1 knight, 2 bishop, 3 rook, 4 queen
+    private static final ChessPiece.PieceType[] PROMOTIONS = {
+            null, ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.BISHOP,
+            ChessPiece.PieceType.ROOK, ChessPiece.PieceType.QUEEN
+    };
+
+    private final MappedByteBuffer entries;
+    private final int size;
+
+    private OpeningBook(MappedByteBuffer entries) {
+        this.entries = entries;
+        this.size = entries.capacity() / ENTRY_BYTES;
+    }
+
+    public static OpeningBook open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length % ENTRY_BYTES != 0 || length > Integer.MAX_VALUE) {
+                throw new IOException("Not an opening book: " + path);
+            }
+            return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, length));
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Picks one of the book moves for the position at random, weighted by their
+     * weights, or returns null when the position is not in the book. Entries that are
+     * not legal in the position are left out of the pick.
+     */
+    public ChessMove pickMove(ChessGame game, Random random) {
+        long key = game.getKey();
+        int first = firstEntry(key);
+        if (first == size || key(first) != key) {
+            return null;
+        }
+        // Every legal move once, so each entry is checked without generating again
+        MoveList legal = new MoveList();
+        ChessMove lastMove = game.getLastMove();
+        LegalMoveGenerator.generate(game.getBoard(), game.getTeamTurn(),
+                lastMove == null ? Move.NONE : Move.encode(lastMove), legal);
+
+        long totalWeight = 0;
+        for (int i = first; i < size && key(i) == key; i++) {
+            if (legalMove(game, legal, i) != null) {
+                totalWeight += weight(i);
+            }
+        }
+        if (totalWeight == 0) {
+            return null;
+        }
+        long choice = (long) (random.nextDouble() * totalWeight);
+        for (int i = first; i < size && key(i) == key; i++) {
+            ChessMove move = legalMove(game, legal, i);
+            if (move != null) {
+                choice -= weight(i);
+                if (choice < 0) {
+                    return move;
+                }
+            }
+        }
+        return null;
+    }
+
+    // The entry's move, or null when it is not one of the legal moves; guards against
+    // key collisions and books built for other keys
+    private ChessMove legalMove(ChessGame game, MoveList legal, int entry) {
+        ChessMove move = decodeMove(game.getBoard(), Short.toUnsignedInt(entries.getShort(entry * ENTRY_BYTES + 8)));
+        if (move == null) {
+            return null;
+        }
+        int encoded = Move.encode(move);
+        for (int i = 0; i < legal.size(); i++) {
+            if (Move.withoutFlags(legal.get(i)) == encoded) {
+                return move;
+            }
+        }
+        return null;
+    }
+
+    private int firstEntry(long key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(key(middle), key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private long key(int entry) {
+        return entries.getLong(entry * ENTRY_BYTES);
+    }
+
+    private int weight(int entry) {
+        return Short.toUnsignedInt(entries.getShort(entry * ENTRY_BYTES + 10));
+    }
+
+    /**
+     * Polyglot move bits: to file 0-2, to row 3-5, from file 6-8, from row 9-11,
+     * promotion 12-14. Castling is written as the king taking its own rook.
+     */
+    static int encodeMove(ChessBoard board, ChessMove move) {
+        ChessPosition start = move.getStartPosition();
+        ChessPosition end = move.getEndPosition();
+        int toCol = end.getCol();
+        ChessPiece piece = board.getPiece(start);
+        if (piece != null && piece.getPieceType() == ChessPiece.PieceType.KING
+                && Math.abs(toCol - start.getCol()) == 2) {
+            toCol = toCol > start.getCol() ? 8 : 1;
+        }
+        int promotion = 0;
+        for (int code = 1; code < PROMOTIONS.length; code++) {
+            if (PROMOTIONS[code] == move.getPromotionPiece()) {
+                promotion = code;
+            }
+        }
+        return (toCol - 1) | ((end.getRow() - 1) << 3) | ((start.getCol() - 1) << 6)
+                | ((start.getRow() - 1) << 9) | (promotion << 12);
+    }
+
+    static ChessMove decodeMove(ChessBoard board, int bits) {
+        int toCol = (bits & 7) + 1;
+        int toRow = ((bits >>> 3) & 7) + 1;
+        int fromCol = ((bits >>> 6) & 7) + 1;
+        int fromRow = ((bits >>> 9) & 7) + 1;
+        int promotion = (bits >>> 12) & 7;
+        if (promotion >= PROMOTIONS.length) {
+            return null;
+        }
+        ChessPiece piece = board.getPiece(fromRow, fromCol);
+        ChessPiece target = board.getPiece(toRow, toCol);
+        if (piece != null && piece.getPieceType() == ChessPiece.PieceType.KING && target != null
+                && target.getPieceType() == ChessPiece.PieceType.ROOK && target.getTeamColor() == piece.getTeamColor()) {
+            toCol = toCol > fromCol ? fromCol + 2 : fromCol - 2;
+        }
+        return ChessMove.of(ChessPosition.of(fromRow, fromCol), ChessPosition.of(toRow, toCol),
+                PROMOTIONS[promotion]);
+    }
+
+    /**
+     * Collects weighted moves and writes them out as a sorted book file.
+     */
+    public static final class Builder {
+        private final List<long[]> entries = new ArrayList<>();
+
+        public Builder add(ChessGame game, ChessMove move, int weight) {
+            if (weight < 1 || weight > 0xFFFF) {
+                throw new IllegalArgumentException("Weight must be between 1 and 65535");
+            }
+            entries.add(new long[]{game.getKey(), encodeMove(game.getBoard(), move), weight});
+            return this;
+        }
+
+        public void write(Path path) throws IOException {
+            List<long[]> sorted = new ArrayList<>(entries);
+            // Keys sort unsigned, as in Polyglot, and the heaviest move comes first
+            sorted.sort((a, b) -> {
+                int byKey = Long.compareUnsigned(a[0], b[0]);
+                return byKey != 0 ? byKey : Long.compare(b[2], a[2]);
+            });
+            try (OutputStream file = Files.newOutputStream(path);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+                for (long[] entry : sorted) {
+                    out.writeLong(entry[0]);
+                    out.writeShort((int) entry[1]);
+                    out.writeShort((int) entry[2]);
+                    out.writeInt(0);
+                }
+            }
+        }
+    }
+}
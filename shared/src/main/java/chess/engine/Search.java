@@ -0,0 +1,430 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.Zobrist;
+import chess.eval.Evaluator;
+import chess.movegen.Attacks;
+import chess.movegen.LegalMoveGenerator;
+import chess.movegen.Move;
+import chess.movegen.MoveGenerator;
+import chess.movegen.MoveList;
+import chess.tablebase.TablebaseResult;
+import chess.tablebase.Tablebases;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Iterative-deepening negamax with alpha-beta pruning and a capture-only quiescence
+ * search. Moves are tried best first: the previous iteration's or the transposition
+ * table's best move, then captures by MVV-LVA, then killer moves. One instance
+ * searches one position on one thread. For a parallel search several instances
+ * share the transposition table and a stop flag, with helpers starting at staggered
+ * depths so they fill the table ahead of the main search.
+ */
+final class Search {
+    static final int MAX_PLY = 128;
+    static final int MATE = 30000;
+    private static final int INFINITY = 32000;
+    // Nodes between reads of the clock
+    private static final int CLOCK_INTERVAL = 1024;
+
+    private static final int BEST_MOVE_ORDER = 1 << 30;
+    private static final int CAPTURE_ORDER = 1 << 20;
+    private static final int KILLER_ORDER = 1 << 19;
+
+    // Piece values for move ordering, indexed by PieceType ordinal: KING, QUEEN,
+    // BISHOP, KNIGHT, ROOK, PAWN
+    private static final int[] VALUES = {0, 900, 330, 320, 500, 100};
+
+    private final ChessBoard board;
+    private final ChessGame.TeamColor rootColor;
+    private final int rootLastMove;
+    private final SearchLimits limits;
+    private final TranspositionTable table;
+    private final Tablebases tablebases = Tablebases.installed();
+    private final AtomicBoolean stopSignal;
+    private final int helper;
+    private final long start = System.nanoTime();
+    private final long budgetNanos;
+
+    private final MoveList[] moveLists = new MoveList[MAX_PLY + 1];
+    private final int[][] orderScores = new int[MAX_PLY + 1][];
+    private final int[][] killers = new int[MAX_PLY + 1][2];
+
+    // Keys of the game so far followed by those along the search path. At each ply,
+    // reversible counts how many of the keys before it could repeat and clock is the
+    // halfmove clock.
+    private final long[] keys;
+    private final int keyBase;
+    private final int[] reversible = new int[MAX_PLY + 1];
+    private final int[] clock = new int[MAX_PLY + 1];
+
+    private long nodes;
+    private boolean stopped;
+    private boolean canStop;
+    private int bestMove = Move.NONE;
+
+    Search(ChessGame game, SearchLimits limits, TranspositionTable table) {
+        this(game, limits, table, new AtomicBoolean(), 0);
+    }
+
+    /**
+     * A search that also stops once {@code stopSignal} is set. Helper {@code 0} is the
+     * main search; any other helper has no minimum depth to finish.
+     */
+    Search(ChessGame game, SearchLimits limits, TranspositionTable table, AtomicBoolean stopSignal, int helper) {
+        this.board = game.getBoard().copy();
+        this.rootColor = game.getTeamTurn();
+        this.rootLastMove = game.getLastMove() == null ? Move.NONE : Move.encode(game.getLastMove());
+        this.limits = limits;
+        this.table = table;
+        this.stopSignal = stopSignal;
+        this.helper = helper;
+        this.canStop = helper != 0;
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(limits.timeMillis());
+
+        long[] history = game.getPositionHistory();
+        keys = new long[history.length + MAX_PLY + 1];
+        System.arraycopy(history, 0, keys, 0, history.length);
+        keyBase = history.length;
+        keys[keyBase] = game.getKey();
+        reversible[0] = history.length;
+        clock[0] = game.getHalfmoveClock();
+    }
+
+    SearchResult run() {
+        MoveList rootMoves = moves(0);
+        LegalMoveGenerator.generate(board, rootColor, rootLastMove, rootMoves);
+        if (rootMoves.isEmpty()) {
+            return new SearchResult(null, isInCheck(rootColor) ? -MATE : 0, 0, 0);
+        }
+
+        int move = rootMoves.get(0);
+        int score = 0;
+        int completedDepth = 0;
+        for (int depth = 1 + helper % 2; depth <= limits.depth(); depth++) {
+            int iterationScore = search(depth, 0, -INFINITY, INFINITY, rootColor, rootLastMove);
+            if (stopped) {
+                break;
+            }
+            move = bestMove;
+            score = iterationScore;
+            completedDepth = depth;
+            canStop = true;
+            // Stop early on a forced move or a forced mate. The main search also stops
+            // when the next iteration would most likely run out of time before it
+            // finished; helpers keep going until they are told to stop.
+            if (rootMoves.size() == 1 || Math.abs(score) >= MATE - MAX_PLY) {
+                break;
+            }
+            if (helper == 0 && (System.nanoTime() - start >= budgetNanos / 2 || nodes >= limits.nodes())) {
+                break;
+            }
+        }
+        return new SearchResult(Move.toChessMove(move), score, completedDepth, nodes);
+    }
+
+    private int search(int depth, int ply, int alpha, int beta, ChessGame.TeamColor color, int lastMove) {
+        if (ply > 0 && isDraw(ply)) {
+            return 0;
+        }
+        TablebaseResult ending = ply > 0 ? probeTablebases(color) : null;
+        if (ending != null) {
+            return tablebaseScore(ending, ply);
+        }
+        boolean inCheck = isInCheck(color);
+        if (inCheck) {
+            depth++;
+        }
+        if (depth <= 0 || ply >= MAX_PLY) {
+            return quiesce(ply, alpha, beta, color, lastMove);
+        }
+        if (countNode()) {
+            return 0;
+        }
+
+        long key = keys[keyBase + ply];
+        long entry = table.probe(key);
+        int hashMove = ply == 0 ? bestMove : Move.NONE;
+        if (entry != TranspositionTable.MISS) {
+            if (hashMove == Move.NONE) {
+                hashMove = TranspositionTable.move(entry);
+            }
+            if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                int score = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER_BOUND && score >= beta)
+                        || (bound == TranspositionTable.UPPER_BOUND && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        MoveList moves = moves(ply);
+        LegalMoveGenerator.generate(board, color, lastMove, moves);
+        if (moves.isEmpty()) {
+            return inCheck ? -MATE + ply : 0;
+        }
+        orderMoves(ply, moves, hashMove);
+
+        ChessGame.TeamColor opponent = MoveGenerator.opponent(color);
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int nodeBestMove = Move.NONE;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = nextMove(ply, moves, i);
+            makeMove(move, ply, opponent);
+            int score = -search(depth - 1, ply + 1, -beta, -alpha, opponent, move);
+            board.undoMove();
+            if (stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                nodeBestMove = move;
+                if (ply == 0) {
+                    bestMove = move;
+                }
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        if (isQuiet(move)) {
+                            storeKiller(ply, move);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+
+        int bound = best <= originalAlpha ? TranspositionTable.UPPER_BOUND
+                : best >= beta ? TranspositionTable.LOWER_BOUND : TranspositionTable.EXACT;
+        table.store(key, Move.withoutFlags(nodeBestMove), toTable(best, ply), depth, bound);
+        return best;
+    }
+
+    /**
+     * Searches captures and queen promotions only, until the position is quiet
+     * enough for the static evaluation to be trusted.
+     */
+    private int quiesce(int ply, int alpha, int beta, ChessGame.TeamColor color, int lastMove) {
+        if (countNode()) {
+            return 0;
+        }
+        TablebaseResult ending = probeTablebases(color);
+        if (ending != null) {
+            return tablebaseScore(ending, ply);
+        }
+        int standPat = Evaluator.evaluate(board, color);
+        if (ply >= MAX_PLY || standPat >= beta) {
+            return standPat;
+        }
+        alpha = Math.max(alpha, standPat);
+
+        MoveList moves = moves(ply);
+        LegalMoveGenerator.generate(board, color, lastMove, moves);
+        int tactical = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            ChessPiece.PieceType promotion = Move.promotion(move);
+            if (promotion == ChessPiece.PieceType.QUEEN || (promotion == null && Move.isCapture(move))) {
+                moves.set(tactical++, move);
+            }
+        }
+        moves.truncate(tactical);
+        orderMoves(ply, moves, Move.NONE);
+
+        ChessGame.TeamColor opponent = MoveGenerator.opponent(color);
+        int best = standPat;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = nextMove(ply, moves, i);
+            makeMove(move, ply, opponent);
+            int score = -quiesce(ply + 1, -beta, -alpha, opponent, move);
+            board.undoMove();
+            if (stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Plays a move and records the key of the new position, hashed the same way as
+     * {@link ChessGame#getKey()}.
+     */
+    private void makeMove(int move, int ply, ChessGame.TeamColor nextColor) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        boolean pawn = board.getPiece(from).getPieceType() == ChessPiece.PieceType.PAWN;
+        boolean irreversible = pawn || Move.isCapture(move);
+        board.doMove(from, to, Move.promotion(move));
+        int next = ply + 1;
+        reversible[next] = irreversible ? 0 : reversible[ply] + 1;
+        clock[next] = irreversible ? 0 : clock[ply] + 1;
+
+        long key = board.getKey();
+        if (nextColor == ChessGame.TeamColor.BLACK) {
+            key ^= Zobrist.blackToMove();
+        }
+        // A double push only changes the key when a pawn is there to capture en passant
+        if (pawn && Math.abs(to - from) == 16
+                && (Attacks.pawn(MoveGenerator.opponent(nextColor), (from + to) / 2)
+                & board.getPieces(nextColor, ChessPiece.PieceType.PAWN)) != 0) {
+            key ^= Zobrist.enPassant(to & 7);
+        }
+        keys[keyBase + next] = key;
+    }
+
+    /**
+     * Mate scores are stored relative to the position rather than the root, so they
+     * stay right wherever the position turns up again.
+     */
+    private static int toTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score + ply;
+        }
+        return score <= -MATE + MAX_PLY ? score - ply : score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score - ply;
+        }
+        return score <= -MATE + MAX_PLY ? score + ply : score;
+    }
+
+    private TablebaseResult probeTablebases(ChessGame.TeamColor color) {
+        return tablebases == null ? null : tablebases.probe(board, color);
+    }
+
+    // Scored like a mate found by the search, so the shortest win is preferred
+    private static int tablebaseScore(TablebaseResult result, int ply) {
+        return switch (result.outcome()) {
+            case WIN -> MATE - ply - result.pliesToMate();
+            case LOSS -> -MATE + ply + result.pliesToMate();
+            case DRAW -> 0;
+        };
+    }
+
+    /**
+     * A single repetition inside the search already counts as a draw, since whatever
+     * was good enough to repeat once can be repeated again.
+     */
+    private boolean isDraw(int ply) {
+        if (clock[ply] >= 100) {
+            return true;
+        }
+        int index = keyBase + ply;
+        for (int i = index - 4; i >= index - reversible[ply]; i -= 2) {
+            if (keys[i] == keys[index]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean countNode() {
+        nodes++;
+        if (canStop && (nodes >= limits.nodes() || (nodes % CLOCK_INTERVAL == 0
+                && (stopSignal.get() || System.nanoTime() - start >= budgetNanos)))) {
+            stopped = true;
+        }
+        return stopped;
+    }
+
+    long getNodes() {
+        return nodes;
+    }
+
+    private boolean isInCheck(ChessGame.TeamColor color) {
+        long king = board.getPieces(color, ChessPiece.PieceType.KING);
+        return king != 0 && MoveGenerator.isSquareAttacked(board, Long.numberOfTrailingZeros(king),
+                MoveGenerator.opponent(color));
+    }
+
+    private void orderMoves(int ply, MoveList moves, int firstMove) {
+        int[] scores = orderScores[ply];
+        if (scores == null || scores.length < moves.size()) {
+            scores = new int[Math.max(moves.size(), 64)];
+            orderScores[ply] = scores;
+        }
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            int score = 0;
+            ChessPiece.PieceType promotion = Move.promotion(move);
+            if (firstMove != Move.NONE && Move.withoutFlags(move) == Move.withoutFlags(firstMove)) {
+                score = BEST_MOVE_ORDER;
+            } else if (Move.isCapture(move) || promotion != null) {
+                ChessPiece target = board.getPiece(Move.to(move));
+                int victim = target == null ? (Move.isCapture(move) ? VALUES[ChessPiece.PieceType.PAWN.ordinal()] : 0)
+                        : VALUES[target.getPieceType().ordinal()];
+                int attacker = VALUES[board.getPiece(Move.from(move)).getPieceType().ordinal()];
+                score = CAPTURE_ORDER + victim * 16 - attacker / 16;
+                if (promotion != null) {
+                    score += VALUES[promotion.ordinal()] * 16;
+                }
+            } else if (move == killers[ply][0]) {
+                score = KILLER_ORDER + 1;
+            } else if (move == killers[ply][1]) {
+                score = KILLER_ORDER;
+            }
+            scores[i] = score;
+        }
+    }
+
+    /**
+     * Swaps the best-scored of the moves not yet tried into position {@code index}.
+     */
+    private int nextMove(int ply, MoveList moves, int index) {
+        int[] scores = orderScores[ply];
+        int best = index;
+        for (int i = index + 1; i < moves.size(); i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        int move = moves.get(best);
+        if (best != index) {
+            moves.set(best, moves.get(index));
+            moves.set(index, move);
+            int score = scores[best];
+            scores[best] = scores[index];
+            scores[index] = score;
+        }
+        return move;
+    }
+
+    private static boolean isQuiet(int move) {
+        return !Move.isCapture(move) && Move.promotion(move) == null;
+    }
+
+    private void storeKiller(int ply, int move) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+    }
+
+    private MoveList moves(int ply) {
+        MoveList moves = moveLists[ply];
+        if (moves == null) {
+            moves = new MoveList();
+            moveLists[ply] = moves;
+        }
+        moves.clear();
+        return moves;
+    }
+}
@@ -0,0 +1,28 @@
+package chess.engine;
+
+/**
+ * How much work a search may do. The search stops at whichever limit it reaches
+ * first, but always finishes at least one full iteration so it has a move to play.
+ */
+public record SearchLimits(long timeMillis, long nodes, int depth) {
+    public static final int MAX_DEPTH = 64;
+
+    public SearchLimits {
+        if (timeMillis <= 0 || nodes <= 0 || depth <= 0) {
+            throw new IllegalArgumentException("Search limits must be positive");
+        }
+        depth = Math.min(depth, MAX_DEPTH);
+    }
+
+    public static SearchLimits ofTime(long timeMillis) {
+        return new SearchLimits(timeMillis, Long.MAX_VALUE, MAX_DEPTH);
+    }
+
+    public static SearchLimits ofNodes(long nodes) {
+        return new SearchLimits(Long.MAX_VALUE, nodes, MAX_DEPTH);
+    }
+
+    public static SearchLimits ofDepth(int depth) {
+        return new SearchLimits(Long.MAX_VALUE, Long.MAX_VALUE, depth);
+    }
+}
@@ -0,0 +1,13 @@
+package chess.engine;
+
+import chess.ChessMove;
+
+/**
+ * Outcome of a search. The score is in centipawns from the side to move's point of
+ * view, and the move is null when that side has no legal move.
+ */
+public record SearchResult(ChessMove move, int score, int depth, long nodes) {
+    public boolean isMate() {
+        return Math.abs(score) >= Search.MATE - Search.MAX_PLY;
+    }
+}
@@ -0,0 +1,164 @@
+package chess.engine;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size hash table of search results, safe to share between threads without
+ * locking. Each entry is two longs, the key XORed with the data and the data itself,
+ * so an entry torn by two threads writing at once no longer matches its key and
+ * reads as a miss.
+ *
+ * <p>The data packs the move (bits 0-15), score (16-31), depth (32-39), bound
+ * (40-41) and the generation it was written in (42-49). Since one table serves the
+ * searches of every game at once, the generation moves on at most once per aging
+ * period rather than with every search, so a busy server does not age out the
+ * entries of searches that are still running.
+ */
+public final class TranspositionTable {
+    public static final long MISS = 0;
+
+    public static final int UPPER_BOUND = 1;
+    public static final int LOWER_BOUND = 2;
+    public static final int EXACT = 3;
+    public static final long DEFAULT_AGING_MILLIS = 1000;
+
+    private static final int ENTRY_BYTES = 16;
+    private static final int MAX_MEGABYTES = 8192;
+
+    private final long[] entries;
+    private final int mask;
+    private final long agingNanos;
+    private final AtomicLong lastAged = new AtomicLong(System.nanoTime());
+    private volatile int generation;
+
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+
+    /**
+     * Creates a table using at most {@code megabytes} of memory, rounded down to a
+     * power-of-two number of entries.
+     */
+    public TranspositionTable(int megabytes) {
+        this(megabytes, DEFAULT_AGING_MILLIS);
+    }
+
+    /**
+     * Like {@link #TranspositionTable(int)}, with entries aged at most once every
+     * {@code agingMillis}; 0 ages them at the start of every search.
+     */
+    public TranspositionTable(int megabytes, long agingMillis) {
+        if (megabytes < 1 || megabytes > MAX_MEGABYTES) {
+            throw new IllegalArgumentException("Table size must be between 1 and " + MAX_MEGABYTES + " MB");
+        }
+        if (agingMillis < 0) {
+            throw new IllegalArgumentException("Aging period must not be negative");
+        }
+        agingNanos = TimeUnit.MILLISECONDS.toNanos(agingMillis);
+        int size = Integer.highestOneBit((int) ((long) megabytes * 1024 * 1024 / ENTRY_BYTES));
+        entries = new long[size * 2];
+        mask = size - 1;
+    }
+
+    public int size() {
+        return mask + 1;
+    }
+
+    /**
+     * Returns the data stored for {@code key}, or {@link #MISS}.
+     */
+    public long probe(long key) {
+        probes.increment();
+        int index = index(key);
+        long data = entries[index + 1];
+        if (data == MISS || (entries[index] ^ data) != key) {
+            return MISS;
+        }
+        hits.increment();
+        return data;
+    }
+
+    /**
+     * Stores a result, replacing whatever was in the slot unless that is a deeper
+     * result from the current generation.
+     */
+    public void store(long key, int move, int score, int depth, int bound) {
+        int index = index(key);
+        long old = entries[index + 1];
+        int currentGeneration = generation;
+        if (old != MISS && generation(old) == currentGeneration && depth < depth(old)) {
+            return;
+        }
+        long data = (move & 0xFFFFL)
+                | ((score & 0xFFFFL) << 16)
+                | ((long) Math.min(depth, 255) << 32)
+                | ((long) bound << 40)
+                | ((long) currentGeneration << 42);
+        entries[index] = key ^ data;
+        entries[index + 1] = data;
+        stores.increment();
+    }
+
+    /**
+     * Called as a search starts. Once the aging period has passed since the last new
+     * generation, starts another, so entries from earlier searches are replaced first.
+     */
+    public void newSearch() {
+        long now = System.nanoTime();
+        long last = lastAged.get();
+        if (now - last >= agingNanos && lastAged.compareAndSet(last, now)) {
+            generation = (generation + 1) & 0xFF;
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(entries, 0L);
+        probes.reset();
+        hits.reset();
+        stores.reset();
+    }
+
+    public long getProbes() {
+        return probes.sum();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getStores() {
+        return stores.sum();
+    }
+
+    public double getHitRate() {
+        long probeCount = probes.sum();
+        return probeCount == 0 ? 0 : (double) hits.sum() / probeCount;
+    }
+
+    public static int move(long data) {
+        return (int) (data & 0xFFFF);
+    }
+
+    public static int score(long data) {
+        return (short) (data >>> 16);
+    }
+
+    public static int depth(long data) {
+        return (int) ((data >>> 32) & 0xFF);
+    }
+
+    public static int bound(long data) {
+        return (int) ((data >>> 40) & 3);
+    }
+
+    private static int generation(long data) {
+        return (int) ((data >>> 42) & 0xFF);
+    }
+
+    private int index(long key) {
+        return ((int) key & mask) * 2;
+    }
+}
@@ -0,0 +1,49 @@
+package chess.eval;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+
+/**
+ * Static evaluation: material and piece-square tables, blended between their
+ * midgame and endgame values by how much material is left.
+ */
+public final class Evaluator {
+    private Evaluator() {
+    }
+
+    /**
+     * Score in centipawns from {@code side}'s point of view, read from the sums the
+     * board keeps up to date as pieces move.
+     */
+    public static int evaluate(ChessBoard board, ChessGame.TeamColor side) {
+        return taper(board.getMidgameScore(), board.getEndgameScore(), board.getPhase(), side);
+    }
+
+    /**
+     * The same score recomputed square by square, for checking the incremental sums.
+     */
+    public static int evaluateFromScratch(ChessBoard board, ChessGame.TeamColor side) {
+        int midgame = 0;
+        int endgame = 0;
+        int phase = 0;
+        for (int square = 0; square < 64; square++) {
+            ChessPiece piece = board.getPiece(square);
+            if (piece != null) {
+                int index = ChessBoard.pieceIndex(piece.getTeamColor(), piece.getPieceType());
+                midgame += PieceSquareTables.midgame(index, square);
+                endgame += PieceSquareTables.endgame(index, square);
+                phase += PieceSquareTables.phase(index);
+            }
+        }
+        return taper(midgame, endgame, phase, side);
+    }
+
+    private static int taper(int midgame, int endgame, int phase, ChessGame.TeamColor side) {
+        // Early promotions can push the phase past its starting value
+        int midgameWeight = Math.min(phase, PieceSquareTables.MAX_PHASE);
+        int score = (midgame * midgameWeight + endgame * (PieceSquareTables.MAX_PHASE - midgameWeight))
+                / PieceSquareTables.MAX_PHASE;
+        return side == ChessGame.TeamColor.WHITE ? score : -score;
+    }
+}
@@ -0,0 +1,255 @@
+package chess.movegen;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+
+import java.util.Collection;
+
+/**
+ * Legal-only move generation. Checkers and pinned pieces are worked out once per
+ * position, so ordinary moves are filtered with bitboard masks instead of playing
+ * each one out and testing for check. Castling and en passant are rare enough that
+ * they are still verified with doMove/undoMove.
+ */
+public final class LegalMoveGenerator {
+
+    private LegalMoveGenerator() {
+    }
+
+    public static Collection<ChessMove> legalMoves(ChessBoard board, ChessPosition position, ChessMove lastMove) {
+        MoveList moves = new MoveList(32);
+        generate(board, ChessBoard.squareIndex(position.getRow(), position.getCol()),
+                lastMove == null ? Move.NONE : Move.encode(lastMove), moves);
+        return moves.toChessMoves();
+    }
+
+    /**
+     * Appends every legal move for {@code color} to {@code moves}. {@code lastMove}
+     * is the previous move as encoded by {@link Move}, or {@link Move#NONE}.
+     */
+    public static void generate(ChessBoard board, ChessGame.TeamColor color, int lastMove, MoveList moves) {
+        long pieces = board.getOccupancy(color);
+        CheckInfo info = Long.bitCount(board.getPieces(color, ChessPiece.PieceType.KING)) == 1
+                ? new CheckInfo(board, color) : null;
+        while (pieces != 0) {
+            int from = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            generate(board, info, from, lastMove, moves);
+        }
+    }
+
+    /**
+     * Appends the legal moves of the piece on {@code from} to {@code moves}.
+     */
+    public static void generate(ChessBoard board, int from, int lastMove, MoveList moves) {
+        ChessPiece piece = board.getPiece(from);
+        if (piece == null) {
+            return;
+        }
+        ChessGame.TeamColor color = piece.getTeamColor();
+        CheckInfo info = Long.bitCount(board.getPieces(color, ChessPiece.PieceType.KING)) == 1
+                ? new CheckInfo(board, color) : null;
+        generate(board, info, from, lastMove, moves);
+    }
+
+    private static void generate(ChessBoard board, CheckInfo info, int from, int lastMove, MoveList moves) {
+        ChessPiece piece = board.getPiece(from);
+        ChessGame.TeamColor color = piece.getTeamColor();
+        if (info == null) {
+            // No single king to pin against, so fall back to playing each move out
+            ChessMove previous = lastMove == Move.NONE ? null : Move.toChessMove(lastMove);
+            long enemies = board.getOccupancy(MoveGenerator.opponent(color));
+            for (ChessMove move : MoveGenerator.pieceMoves(board, ChessPosition.of(from), previous)) {
+                int encoded = Move.encode(move);
+                if ((enemies & (1L << Move.to(encoded))) != 0) {
+                    encoded |= Move.CAPTURE;
+                }
+                if (!leavesKingInCheck(board, color, encoded)) {
+                    moves.add(encoded);
+                }
+            }
+            return;
+        }
+
+        long targets = info.targets(from, piece);
+        long enemies = board.getOccupancy(MoveGenerator.opponent(color));
+        boolean pawn = piece.getPieceType() == ChessPiece.PieceType.PAWN;
+        int promotionRank = color == ChessGame.TeamColor.WHITE ? 7 : 0;
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            int flags = (enemies & (1L << to)) != 0 ? Move.CAPTURE : 0;
+            if (pawn && to / 8 == promotionRank) {
+                for (ChessPiece.PieceType type : Move.PROMOTIONS) {
+                    moves.add(Move.encode(from, to, type, flags));
+                }
+            } else {
+                moves.add(Move.encode(from, to, null, flags));
+            }
+        }
+        addSpecialMoves(board, piece, from, lastMove, moves);
+    }
+
+    /**
+     * Whether {@code color} has at least one legal move; stops at the first one found.
+     */
+    public static boolean hasLegalMove(ChessBoard board, ChessGame.TeamColor color, ChessMove lastMove) {
+        int previous = lastMove == null ? Move.NONE : Move.encode(lastMove);
+        long pieces = board.getOccupancy(color);
+        if (Long.bitCount(board.getPieces(color, ChessPiece.PieceType.KING)) != 1) {
+            MoveList moves = new MoveList();
+            generate(board, color, previous, moves);
+            return !moves.isEmpty();
+        }
+
+        CheckInfo info = new CheckInfo(board, color);
+        MoveList specialMoves = null;
+        while (pieces != 0) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            ChessPiece piece = board.getPiece(square);
+            if (info.targets(square, piece) != 0) {
+                return true;
+            }
+            if (piece.getPieceType() == ChessPiece.PieceType.KING || piece.getPieceType() == ChessPiece.PieceType.PAWN) {
+                if (specialMoves == null) {
+                    specialMoves = new MoveList(4);
+                }
+                addSpecialMoves(board, piece, square, previous, specialMoves);
+                if (!specialMoves.isEmpty()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void addSpecialMoves(ChessBoard board, ChessPiece piece, int from, int lastMove, MoveList moves) {
+        ChessGame.TeamColor color = piece.getTeamColor();
+        if (piece.getPieceType() == ChessPiece.PieceType.KING) {
+            long castles = MoveGenerator.castlingTargets(board, piece, from);
+            while (castles != 0) {
+                int to = Long.numberOfTrailingZeros(castles);
+                castles &= castles - 1;
+                int move = Move.encode(from, to, null, Move.CASTLING);
+                if (!leavesKingInCheck(board, color, move)) {
+                    moves.add(move);
+                }
+            }
+        } else if (piece.getPieceType() == ChessPiece.PieceType.PAWN) {
+            int enPassant = MoveGenerator.enPassantTarget(board, color, from, lastMove);
+            if (enPassant >= 0) {
+                int move = Move.encode(from, enPassant, null, Move.CAPTURE | Move.EN_PASSANT);
+                if (!leavesKingInCheck(board, color, move)) {
+                    moves.add(move);
+                }
+            }
+        }
+    }
+
+    private static boolean leavesKingInCheck(ChessBoard board, ChessGame.TeamColor color, int move) {
+        board.doMove(Move.from(move), Move.to(move), Move.promotion(move));
+        long kings = board.getPieces(color, ChessPiece.PieceType.KING);
+        boolean inCheck = kings != 0
+                && MoveGenerator.isSquareAttacked(board, Long.numberOfTrailingZeros(kings), MoveGenerator.opponent(color));
+        board.undoMove();
+        return inCheck;
+    }
+
+    /**
+     * Checkers, the squares that resolve a single check, and absolutely pinned
+     * pieces for one side's king.
+     */
+    private static final class CheckInfo {
+        private final ChessBoard board;
+        private final ChessGame.TeamColor color;
+        private final ChessGame.TeamColor enemy;
+        private final int king;
+        private final long own;
+        private final long all;
+        private final long checkers;
+        private final long checkMask;
+        private long pinned;
+
+        CheckInfo(ChessBoard board, ChessGame.TeamColor color) {
+            this.board = board;
+            this.color = color;
+            this.enemy = MoveGenerator.opponent(color);
+            this.king = Long.numberOfTrailingZeros(board.getPieces(color, ChessPiece.PieceType.KING));
+            this.own = board.getOccupancy(color);
+            this.all = board.getOccupancy();
+
+            long queens = board.getPieces(enemy, ChessPiece.PieceType.QUEEN);
+            long diagonal = board.getPieces(enemy, ChessPiece.PieceType.BISHOP) | queens;
+            long straight = board.getPieces(enemy, ChessPiece.PieceType.ROOK) | queens;
+            checkers = (Attacks.knight(king) & board.getPieces(enemy, ChessPiece.PieceType.KNIGHT))
+                    | (Attacks.pawn(color, king) & board.getPieces(enemy, ChessPiece.PieceType.PAWN))
+                    | (Attacks.king(king) & board.getPieces(enemy, ChessPiece.PieceType.KING))
+                    | (Attacks.bishop(king, all) & diagonal)
+                    | (Attacks.rook(king, all) & straight);
+            if (checkers == 0) {
+                checkMask = -1L;
+            } else if (Long.bitCount(checkers) == 1) {
+                checkMask = checkers | Attacks.between(king, Long.numberOfTrailingZeros(checkers));
+            } else {
+                checkMask = 0;
+            }
+
+            // Sliders that would see the king if our own pieces were transparent
+            long enemies = board.getOccupancy(enemy);
+            long snipers = (Attacks.bishop(king, enemies) & diagonal) | (Attacks.rook(king, enemies) & straight);
+            while (snipers != 0) {
+                int sniper = Long.numberOfTrailingZeros(snipers);
+                snipers &= snipers - 1;
+                long blockers = Attacks.between(king, sniper) & all;
+                if (Long.bitCount(blockers) == 1 && (blockers & own) != 0) {
+                    pinned |= blockers;
+                }
+            }
+        }
+
+        /**
+         * Legal destinations for the piece on {@code from}, excluding castling and
+         * en passant.
+         */
+        long targets(int from, ChessPiece piece) {
+            if (piece.getPieceType() == ChessPiece.PieceType.KING) {
+                return kingTargets();
+            }
+            if (checkMask == 0) {
+                return 0;
+            }
+            long targets = switch (piece.getPieceType()) {
+                case QUEEN -> Attacks.queen(from, all) & ~own;
+                case BISHOP -> Attacks.bishop(from, all) & ~own;
+                case KNIGHT -> Attacks.knight(from) & ~own;
+                case ROOK -> Attacks.rook(from, all) & ~own;
+                case PAWN -> MoveGenerator.pawnTargets(board, color, from);
+                default -> 0;
+            };
+            targets &= checkMask;
+            if ((pinned & (1L << from)) != 0) {
+                targets &= Attacks.line(king, from);
+            }
+            return targets;
+        }
+
+        private long kingTargets() {
+            // Lift the king off the board so sliders see through its current square
+            long withoutKing = all & ~(1L << king);
+            long candidates = Attacks.king(king) & ~own;
+            long targets = 0;
+            while (candidates != 0) {
+                int to = Long.numberOfTrailingZeros(candidates);
+                candidates &= candidates - 1;
+                if (!MoveGenerator.isSquareAttacked(board, to, enemy, withoutKing)) {
+                    targets |= 1L << to;
+                }
+            }
+            return targets;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package chess.movegen;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * Table-driven pseudo-legal move generation. Produces exactly the same moves as
+ * {@link ChessPiece#pieceMoves(ChessBoard, ChessPosition, ChessMove)}, including its
+ * castling and en passant rules.
+ */
+public final class MoveGenerator {
+    private MoveGenerator() {
+    }
+
+    public static Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition position, ChessMove lastMove) {
+        Collection<ChessMove> moves = new ArrayList<>();
+        ChessPiece piece = board.getPiece(position);
+        if (piece == null) {
+            return moves;
+        }
+        int from = ChessBoard.squareIndex(position.getRow(), position.getCol());
+        ChessGame.TeamColor color = piece.getTeamColor();
+        long own = board.getOccupancy(color);
+        long all = board.getOccupancy();
+        switch (piece.getPieceType()) {
+            case KING -> {
+                addMoves(position, Attacks.king(from) & ~own, moves);
+                addCastlingMoves(board, piece, position, moves);
+            }
+            case QUEEN -> addMoves(position, Attacks.queen(from, all) & ~own, moves);
+            case BISHOP -> addMoves(position, Attacks.bishop(from, all) & ~own, moves);
+            case KNIGHT -> addMoves(position, Attacks.knight(from) & ~own, moves);
+            case ROOK -> addMoves(position, Attacks.rook(from, all) & ~own, moves);
+            case PAWN -> addPawnMoves(board, color, position, from, lastMove, moves);
+        }
+        return moves;
+    }
+
+    /**
+     * Whether any piece of {@code attacker} could capture on {@code square}.
+     */
+    public static boolean isSquareAttacked(ChessBoard board, int square, ChessGame.TeamColor attacker) {
+        return isSquareAttacked(board, square, attacker, board.getOccupancy());
+    }
+
+    /**
+     * Attack test with slider rays traced through {@code all} instead of the board's
+     * own occupancy, e.g. with the defending king lifted off the board.
+     */
+    public static boolean isSquareAttacked(ChessBoard board, int square, ChessGame.TeamColor attacker, long all) {
+        long queens = board.getPieces(attacker, ChessPiece.PieceType.QUEEN);
+        return (Attacks.knight(square) & board.getPieces(attacker, ChessPiece.PieceType.KNIGHT)) != 0
+                || (Attacks.king(square) & board.getPieces(attacker, ChessPiece.PieceType.KING)) != 0
+                || (Attacks.pawn(opponent(attacker), square) & board.getPieces(attacker, ChessPiece.PieceType.PAWN)) != 0
+                || (Attacks.bishop(square, all) & (board.getPieces(attacker, ChessPiece.PieceType.BISHOP) | queens)) != 0
+                || (Attacks.rook(square, all) & (board.getPieces(attacker, ChessPiece.PieceType.ROOK) | queens)) != 0;
+    }
+
+    public static ChessGame.TeamColor opponent(ChessGame.TeamColor color) {
+        return color == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+    }
+
+    private static void addMoves(ChessPosition from, long targets, Collection<ChessMove> moves) {
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            moves.add(ChessMove.of(from, toPosition(to), null));
+        }
+    }
+
+    private static void addPawnMoves(ChessBoard board, ChessGame.TeamColor color, ChessPosition position, int from,
+                                     ChessMove lastMove, Collection<ChessMove> moves) {
+        boolean white = color == ChessGame.TeamColor.WHITE;
+        int direction = white ? 1 : -1;
+        int startRow = white ? 2 : 7;
+        int promotionRow = white ? 8 : 1;
+        int row = position.getRow();
+        long all = board.getOccupancy();
+
+        // Move forward one step, then two from the starting row
+        int oneStepRow = row + direction;
+        if (oneStepRow >= 1 && oneStepRow <= 8) {
+            int oneStep = from + 8 * direction;
+            if ((all & (1L << oneStep)) == 0) {
+                addPawnMove(position, oneStep, oneStepRow == promotionRow, moves);
+                if (row == startRow) {
+                    int twoSteps = oneStep + 8 * direction;
+                    if ((all & (1L << twoSteps)) == 0) {
+                        moves.add(ChessMove.of(position, toPosition(twoSteps), null));
+                    }
+                }
+            }
+        }
+
+        // Capture diagonally
+        long captures = Attacks.pawn(color, from) & board.getOccupancy(opponent(color));
+        while (captures != 0) {
+            int to = Long.numberOfTrailingZeros(captures);
+            captures &= captures - 1;
+            addPawnMove(position, to, oneStepRow == promotionRow, moves);
+        }
+
+        // En passant
+        int enPassant = enPassantTarget(board, color, position, lastMove);
+        if (enPassant >= 0) {
+            moves.add(ChessMove.of(position, toPosition(enPassant), null));
+        }
+    }
+
+    /**
+     * The square a pawn on {@code position} may capture to en passant after
+     * {@code lastMove}, or -1 if there is none.
+     */
+    static int enPassantTarget(ChessBoard board, ChessGame.TeamColor color, ChessPosition position, ChessMove lastMove) {
+        if (lastMove == null) {
+            return -1;
+        }
+        return enPassantTarget(board, color, ChessBoard.squareIndex(position.getRow(), position.getCol()),
+                Move.encode(lastMove));
+    }
+
+    static int enPassantTarget(ChessBoard board, ChessGame.TeamColor color, int from, int lastMove) {
+        boolean white = color == ChessGame.TeamColor.WHITE;
+        int rank = from / 8;
+        if (lastMove == Move.NONE || rank != (white ? 4 : 3)) {
+            return -1;
+        }
+        int lastTo = Move.to(lastMove);
+        if (lastTo / 8 != rank || Math.abs(lastTo % 8 - from % 8) != 1) {
+            return -1;
+        }
+        ChessPiece lastMovedPiece = board.getPiece(lastTo);
+        if (lastMovedPiece != null && lastMovedPiece.getPieceType() == ChessPiece.PieceType.PAWN &&
+                lastMovedPiece.getTeamColor() != color &&
+                Math.abs(Move.from(lastMove) / 8 - rank) == 2) {
+            return lastTo + (white ? 8 : -8);
+        }
+        return -1;
+    }
+
+    /**
+     * Pawn pushes and ordinary captures from {@code from}, without en passant.
+     */
+    static long pawnTargets(ChessBoard board, ChessGame.TeamColor color, int from) {
+        long all = board.getOccupancy();
+        long pawn = 1L << from;
+        long oneStep;
+        long twoSteps = 0;
+        if (color == ChessGame.TeamColor.WHITE) {
+            oneStep = (pawn << 8) & ~all;
+            if (from / 8 == 1) {
+                twoSteps = (oneStep << 8) & ~all;
+            }
+        } else {
+            oneStep = (pawn >>> 8) & ~all;
+            if (from / 8 == 6) {
+                twoSteps = (oneStep >>> 8) & ~all;
+            }
+        }
+        return oneStep | twoSteps | (Attacks.pawn(color, from) & board.getOccupancy(opponent(color)));
+    }
+
+    private static void addPawnMove(ChessPosition from, int to, boolean promotion, Collection<ChessMove> moves) {
+        ChessPosition end = toPosition(to);
+        if (promotion) {
+            for (ChessPiece.PieceType type : Move.PROMOTIONS) {
+                moves.add(ChessMove.of(from, end, type));
+            }
+        } else {
+            moves.add(ChessMove.of(from, end, null));
+        }
+    }
+
+    private static void addCastlingMoves(ChessBoard board, ChessPiece king, ChessPosition position,
+                                         Collection<ChessMove> moves) {
+        addMoves(position, castlingTargets(board, king, ChessBoard.squareIndex(position.getRow(), position.getCol())), moves);
+    }
+
+    /**
+     * Squares the king on {@code from} may castle to, by ChessPiece's rules.
+     */
+    static long castlingTargets(ChessBoard board, ChessPiece king, int from) {
+        int row = from / 8 + 1;
+        int col = from % 8 + 1;
+        int homeRow = king.getTeamColor() == ChessGame.TeamColor.WHITE ? 1 : 8;
+        if (king.hasMoved() || row != homeRow || col != 5) {
+            return 0;
+        }
+        long targets = 0;
+        if (canCastle(board, king.getTeamColor(), row, col, 8)) {
+            targets |= 1L << (from + 2);
+        }
+        if (canCastle(board, king.getTeamColor(), row, col, 1)) {
+            targets |= 1L << (from - 2);
+        }
+        return targets;
+    }
+
+    private static boolean canCastle(ChessBoard board, ChessGame.TeamColor color, int row, int kingCol, int rookCol) {
+        ChessPiece rook = board.getPiece(row, rookCol);
+        if (rook == null || rook.getPieceType() != ChessPiece.PieceType.ROOK || rook.getTeamColor() != color
+                || rook.hasMoved()) {
+            return false;
+        }
+        long all = board.getOccupancy();
+        int start = Math.min(kingCol, rookCol);
+        int end = Math.max(kingCol, rookCol);
+        for (int col = start + 1; col < end; col++) {
+            if ((all & (1L << ChessBoard.squareIndex(row, col))) != 0) {
+                return false;
+            }
+        }
+        // The king may not castle out of, through or into check
+        ChessGame.TeamColor attacker = opponent(color);
+        int direction = kingCol < rookCol ? 1 : -1;
+        for (int step = 0; step <= 2; step++) {
+            if (board.isSquareAttacked(ChessBoard.squareIndex(row, kingCol + step * direction), attacker)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static ChessPosition toPosition(int square) {
+        return ChessPosition.of(square);
+    }
+}
@@ -0,0 +1,143 @@
+package chess.tablebase;
+
+import chess.ChessPiece;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * One memory-mapped endgame table: a king and one piece against a bare king, with
+ * the piece's side shown as white. Every position has an entry, indexed by
+ * {@link #index}, holding 0 for a draw or an impossible position, or one more than
+ * the number of plies until white mates.
+ *
+ * <p>The file is a 16-byte header (magic, material, bits per entry, entry count)
+ * followed by the entries packed into little-endian longs at the width in the header.
+ */
+public final class Tablebase {
+    public static final int SIZE = 2 * 64 * 64 * 64;
+
+    private static final int MAGIC = 0x43544231; // "CTB1"
+    private static final int HEADER_BYTES = 16;
+
+    public enum Material {
+        KQK(ChessPiece.PieceType.QUEEN),
+        KRK(ChessPiece.PieceType.ROOK),
+        KPK(ChessPiece.PieceType.PAWN);
+
+        private final ChessPiece.PieceType piece;
+
+        Material(ChessPiece.PieceType piece) {
+            this.piece = piece;
+        }
+
+        public ChessPiece.PieceType getPiece() {
+            return piece;
+        }
+
+        public String fileName() {
+            return name().toLowerCase() + ".tb";
+        }
+    }
+
+    private final Material material;
+    private final MappedByteBuffer entries;
+    private final int bits;
+    private final long mask;
+
+    private Tablebase(Material material, MappedByteBuffer entries, int bits) {
+        this.material = material;
+        this.entries = entries;
+        this.bits = bits;
+        this.mask = (1L << bits) - 1;
+    }
+
+    public static Tablebase open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < HEADER_BYTES) {
+                throw new IOException("Not a tablebase: " + path);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            int magic = mapped.getInt(0);
+            int material = mapped.getInt(4);
+            int bits = mapped.getInt(8);
+            int size = mapped.getInt(12);
+            if (magic != MAGIC || material < 0 || material >= Material.values().length
+                    || bits < 1 || bits > 8 || size != SIZE || length != HEADER_BYTES + dataBytes(bits)) {
+                throw new IOException("Not a tablebase: " + path);
+            }
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            return new Tablebase(Material.values()[material], mapped, bits);
+        }
+    }
+
+    public Material getMaterial() {
+        return material;
+    }
+
+    /**
+     * Entry for a position: 0 for a draw, otherwise one more than the plies to mate.
+     */
+    public int get(int index) {
+        long bit = (long) index * bits;
+        int word = (int) (bit >>> 6);
+        int shift = (int) (bit & 63);
+        long value = entries.getLong(HEADER_BYTES + word * 8) >>> shift;
+        if (shift + bits > 64) {
+            value |= entries.getLong(HEADER_BYTES + (word + 1) * 8) << (64 - shift);
+        }
+        return (int) (value & mask);
+    }
+
+    /**
+     * Index of a position with white's king, black's king and white's piece on the
+     * given squares.
+     */
+    public static int index(boolean whiteToMove, int whiteKing, int blackKing, int piece) {
+        return (((whiteToMove ? 0 : 64) + whiteKing) * 64 + blackKing) * 64 + piece;
+    }
+
+    static void write(Path path, Material material, int[] values) throws IOException {
+        int max = 0;
+        for (int value : values) {
+            max = Math.max(max, value);
+        }
+        int bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(max));
+        if (bits > 8) {
+            throw new IllegalArgumentException("Entries do not fit in a byte");
+        }
+        long[] words = new long[dataBytes(bits) / 8];
+        for (int index = 0; index < values.length; index++) {
+            long bit = (long) index * bits;
+            int word = (int) (bit >>> 6);
+            int shift = (int) (bit & 63);
+            words[word] |= (long) values[index] << shift;
+            if (shift + bits > 64) {
+                words[word + 1] |= (long) values[index] >>> (64 - shift);
+            }
+        }
+        try (OutputStream file = Files.newOutputStream(path);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            out.writeInt(MAGIC);
+            out.writeInt(material.ordinal());
+            out.writeInt(bits);
+            out.writeInt(SIZE);
+            for (long word : words) {
+                out.writeLong(Long.reverseBytes(word));
+            }
+        }
+    }
+
+    private static int dataBytes(int bits) {
+        return (int) (((long) SIZE * bits + 63) / 64) * 8;
+    }
+}
@@ -0,0 +1,215 @@
+package chess.tablebase;
+
+import chess.ChessGame;
+import chess.movegen.Attacks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Builds the tablebases by retrograde analysis. Mates are found first, then each
+ * pass marks the positions one ply further from mate: white wins in {@code n} if
+ * some move reaches a position lost in {@code n - 1}, and black loses in {@code n}
+ * once every move reaches a position white wins in at most {@code n - 1}. Whatever
+ * is left at the end is a draw. KPK promotions look up the KQK and KRK results, so
+ * those are built first.
+ *
+ * <p>Run with the output directory as the only argument.
+ */
+public final class TablebaseGenerator {
+    private static final int UNKNOWN = -1;
+    private static final int DRAW = -2;
+
+    private final Tablebase.Material material;
+    private final int[] queenResults;
+    private final int[] rookResults;
+    private final int[] results = new int[Tablebase.SIZE];
+
+    private TablebaseGenerator(Tablebase.Material material, int[] queenResults, int[] rookResults) {
+        this.material = material;
+        this.queenResults = queenResults;
+        this.rookResults = rookResults;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Path.of(args.length > 0 ? args[0] : "tablebases");
+        generateAll(directory);
+        System.out.println("Wrote tablebases to " + directory.toAbsolutePath());
+    }
+
+    public static void generateAll(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        int[] queen = new TablebaseGenerator(Tablebase.Material.KQK, null, null).generate();
+        int[] rook = new TablebaseGenerator(Tablebase.Material.KRK, null, null).generate();
+        int[] pawn = new TablebaseGenerator(Tablebase.Material.KPK, queen, rook).generate();
+        Tablebase.write(directory.resolve(Tablebase.Material.KQK.fileName()), Tablebase.Material.KQK, queen);
+        Tablebase.write(directory.resolve(Tablebase.Material.KRK.fileName()), Tablebase.Material.KRK, rook);
+        Tablebase.write(directory.resolve(Tablebase.Material.KPK.fileName()), Tablebase.Material.KPK, pawn);
+    }
+
+    /**
+     * Returns the table's entries in the {@link Tablebase} format.
+     */
+    private int[] generate() {
+        Arrays.fill(results, UNKNOWN);
+        for (int index = 0; index < Tablebase.SIZE; index++) {
+            int whiteKing = whiteKing(index);
+            int blackKing = blackKing(index);
+            int piece = piece(index);
+            if (!isLegal(whiteToMove(index), whiteKing, blackKing, piece)) {
+                results[index] = DRAW;
+            } else if (!whiteToMove(index) && !hasBlackMove(whiteKing, blackKing, piece)) {
+                results[index] = attackedByWhite(blackKing, whiteKing, blackKing, piece) ? 0 : DRAW;
+            }
+        }
+
+        // Promotions can win in more plies than any pass so far, so keep going at
+        // least until those could have been reached
+        int lastPromotion = Math.max(longest(queenResults), longest(rookResults));
+        int quietPasses = 0;
+        for (int plies = 1; plies <= lastPromotion || quietPasses < 2; plies++) {
+            boolean whiteToMove = plies % 2 == 1;
+            boolean changed = false;
+            for (int index = 0; index < Tablebase.SIZE; index++) {
+                if (results[index] != UNKNOWN || whiteToMove(index) != whiteToMove) {
+                    continue;
+                }
+                boolean won = whiteToMove ? whiteWinsIn(index, plies) : blackLosesIn(index, plies);
+                if (won) {
+                    results[index] = plies;
+                    changed = true;
+                }
+            }
+            quietPasses = changed ? 0 : quietPasses + 1;
+        }
+
+        int[] entries = new int[Tablebase.SIZE];
+        for (int index = 0; index < Tablebase.SIZE; index++) {
+            entries[index] = results[index] >= 0 ? results[index] + 1 : 0;
+        }
+        return entries;
+    }
+
+    private static int longest(int[] entries) {
+        return entries == null ? 0 : Arrays.stream(entries).max().orElse(0);
+    }
+
+    private boolean whiteWinsIn(int index, int plies) {
+        int whiteKing = whiteKing(index);
+        int blackKing = blackKing(index);
+        int piece = piece(index);
+        long occupancy = (1L << whiteKing) | (1L << blackKing) | (1L << piece);
+
+        long kingMoves = Attacks.king(whiteKing) & ~(1L << piece) & ~Attacks.king(blackKing);
+        for (long targets = kingMoves; targets != 0; targets &= targets - 1) {
+            int to = Long.numberOfTrailingZeros(targets);
+            if (results[Tablebase.index(false, to, blackKing, piece)] == plies - 1) {
+                return true;
+            }
+        }
+
+        if (material == Tablebase.Material.KPK) {
+            int single = piece + 8;
+            if ((occupancy & (1L << single)) != 0) {
+                return false;
+            }
+            if (single >= 56) {
+                // KQK and KRK entries are the plies after promoting plus one, which
+                // is the plies counted from the pawn move
+                int promoted = Tablebase.index(false, whiteKing, blackKing, single);
+                return queenResults[promoted] == plies || rookResults[promoted] == plies;
+            }
+            if (results[Tablebase.index(false, whiteKing, blackKing, single)] == plies - 1) {
+                return true;
+            }
+            int dbl = piece + 16;
+            return piece < 16 && (occupancy & (1L << dbl)) == 0
+                    && results[Tablebase.index(false, whiteKing, blackKing, dbl)] == plies - 1;
+        }
+
+        long pieceMoves = pieceAttacks(piece, occupancy) & ~(1L << whiteKing) & ~(1L << blackKing);
+        for (long targets = pieceMoves; targets != 0; targets &= targets - 1) {
+            int to = Long.numberOfTrailingZeros(targets);
+            if (results[Tablebase.index(false, whiteKing, blackKing, to)] == plies - 1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean blackLosesIn(int index, int plies) {
+        int whiteKing = whiteKing(index);
+        int blackKing = blackKing(index);
+        int piece = piece(index);
+        for (long targets = blackMoves(whiteKing, blackKing, piece); targets != 0; targets &= targets - 1) {
+            int to = Long.numberOfTrailingZeros(targets);
+            if (to == piece) {
+                return false; // a bare king cannot lose
+            }
+            int result = results[Tablebase.index(true, whiteKing, to, piece)];
+            if (result < 0 || result >= plies) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean hasBlackMove(int whiteKing, int blackKing, int piece) {
+        return blackMoves(whiteKing, blackKing, piece) != 0;
+    }
+
+    private long blackMoves(int whiteKing, int blackKing, int piece) {
+        long moves = Attacks.king(blackKing) & ~Attacks.king(whiteKing);
+        long remaining = 0;
+        for (long targets = moves; targets != 0; targets &= targets - 1) {
+            int to = Long.numberOfTrailingZeros(targets);
+            if (to == piece || !attackedByWhite(to, whiteKing, blackKing, piece)) {
+                remaining |= 1L << to;
+            }
+        }
+        return remaining;
+    }
+
+    // The black king is left out of the occupancy so that it cannot hide behind itself
+    private boolean attackedByWhite(int square, int whiteKing, int blackKing, int piece) {
+        long occupancy = (1L << whiteKing) | (1L << piece);
+        return square != piece && (pieceAttacks(piece, occupancy) & (1L << square)) != 0;
+    }
+
+    private long pieceAttacks(int piece, long occupancy) {
+        return switch (material) {
+            case KQK -> Attacks.queen(piece, occupancy);
+            case KRK -> Attacks.rook(piece, occupancy);
+            case KPK -> Attacks.pawn(ChessGame.TeamColor.WHITE, piece);
+        };
+    }
+
+    private boolean isLegal(boolean whiteToMove, int whiteKing, int blackKing, int piece) {
+        if (whiteKing == blackKing || piece == whiteKing || piece == blackKing
+                || (Attacks.king(whiteKing) & (1L << blackKing)) != 0) {
+            return false;
+        }
+        if (material == Tablebase.Material.KPK && (piece < 8 || piece >= 56)) {
+            return false;
+        }
+        return !whiteToMove || !attackedByWhite(blackKing, whiteKing, blackKing, piece);
+    }
+
+    private static boolean whiteToMove(int index) {
+        return index < Tablebase.SIZE / 2;
+    }
+
+    private static int whiteKing(int index) {
+        return (index >>> 12) & 63;
+    }
+
+    private static int blackKing(int index) {
+        return (index >>> 6) & 63;
+    }
+
+    private static int piece(int index) {
+        return index & 63;
+    }
+}
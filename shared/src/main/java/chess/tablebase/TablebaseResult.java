@@ -0,0 +1,13 @@
+package chess.tablebase;
+
+/**
+ * Result of a tablebase probe from the side to move's point of view. Plies to mate
+ * count until the losing side is checkmated and are 0 for a draw.
+ */
+public record TablebaseResult(Outcome outcome, int pliesToMate) {
+    public enum Outcome {
+        WIN,
+        LOSS,
+        DRAW
+    }
+}
@@ -0,0 +1,108 @@
+package chess.tablebase;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The tablebases found in one directory. A set can be installed for the whole
+ * process, after which {@link ChessGame} reports drawn endings as finished and the
+ * engine scores positions it covers without searching them.
+ */
+public final class Tablebases {
+    private static volatile Tablebases installed;
+
+    private final Tablebase[] tables = new Tablebase[Tablebase.Material.values().length];
+
+    private Tablebases() {
+    }
+
+    /**
+     * Maps every table file in {@code directory}. Tables that are missing are simply
+     * not probed.
+     */
+    public static Tablebases open(Path directory) throws IOException {
+        Tablebases tablebases = new Tablebases();
+        for (Tablebase.Material material : Tablebase.Material.values()) {
+            Path path = directory.resolve(material.fileName());
+            if (Files.exists(path)) {
+                Tablebase table = Tablebase.open(path);
+                if (table.getMaterial() != material) {
+                    throw new IOException("Tablebase " + path + " holds " + table.getMaterial());
+                }
+                tablebases.tables[material.ordinal()] = table;
+            }
+        }
+        return tablebases;
+    }
+
+    public static Tablebases installed() {
+        return installed;
+    }
+
+    public static void install(Tablebases tablebases) {
+        installed = tablebases;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Tablebase table : tables) {
+            if (table != null) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Looks the position up, or returns null when no loaded table covers it. Positions
+     * where either side may still castle are left to the search.
+     */
+    public TablebaseResult probe(ChessBoard board, ChessGame.TeamColor sideToMove) {
+        long occupancy = board.getOccupancy();
+        if (Long.bitCount(occupancy) != 3 || board.getCastlingRights() != 0) {
+            return null;
+        }
+        ChessGame.TeamColor strong = Long.bitCount(board.getOccupancy(ChessGame.TeamColor.WHITE)) == 2
+                ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+        ChessGame.TeamColor weak = strong == ChessGame.TeamColor.WHITE
+                ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        long strongKing = board.getPieces(strong, ChessPiece.PieceType.KING);
+        long weakKing = board.getPieces(weak, ChessPiece.PieceType.KING);
+        long piece = board.getOccupancy(strong) & ~strongKing;
+        if (Long.bitCount(strongKing) != 1 || Long.bitCount(weakKing) != 1) {
+            return null;
+        }
+        Tablebase table = table(board.getPiece(Long.numberOfTrailingZeros(piece)).getPieceType());
+        if (table == null) {
+            return null;
+        }
+
+        // Tables are stored with the stronger side as white, so flip the board for black
+        int flip = strong == ChessGame.TeamColor.WHITE ? 0 : 56;
+        int index = Tablebase.index(sideToMove == strong,
+                Long.numberOfTrailingZeros(strongKing) ^ flip,
+                Long.numberOfTrailingZeros(weakKing) ^ flip,
+                Long.numberOfTrailingZeros(piece) ^ flip);
+        int entry = table.get(index);
+        if (entry == 0) {
+            return new TablebaseResult(TablebaseResult.Outcome.DRAW, 0);
+        }
+        TablebaseResult.Outcome outcome = sideToMove == strong
+                ? TablebaseResult.Outcome.WIN : TablebaseResult.Outcome.LOSS;
+        return new TablebaseResult(outcome, entry - 1);
+    }
+
+    private Tablebase table(ChessPiece.PieceType type) {
+        for (Tablebase.Material material : Tablebase.Material.values()) {
+            if (material.getPiece() == type) {
+                return tables[material.ordinal()];
+            }
+        }
+        return null;
+    }
+}
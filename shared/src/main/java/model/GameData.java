@@ -2,17 +2,28 @@ package model;
 
 import chess.ChessGame;
 
-public record GameData(int gameID, String whiteUsername, String blackUsername, String gameName, ChessGame game, String winner) {
-  public GameData(int gameID, String whiteUsername, String blackUsername, String gameName, ChessGame game, String winner) {
+/**
+ * @param engineColor the seat the server's engine plays in a single-player game, or null
+ *                    when both seats are for people
+ */
+public record GameData(int gameID, String whiteUsername, String blackUsername, String gameName, ChessGame game,
+                       String winner, ChessGame.TeamColor engineColor) {
+  public GameData(int gameID, String whiteUsername, String blackUsername, String gameName, ChessGame game,
+                  String winner, ChessGame.TeamColor engineColor) {
     this.gameID = gameID;
     this.whiteUsername = whiteUsername;
     this.blackUsername = blackUsername;
     this.gameName = gameName;
     this.game = game;
     this.winner = winner;
+    this.engineColor = engineColor;
+  }
+
+  public GameData(int gameID, String whiteUsername, String blackUsername, String gameName, ChessGame game, String winner) {
+    this(gameID, whiteUsername, blackUsername, gameName, game, winner, null);
   }
 
   public GameData(int gameID, String whiteUsername, String blackUsername, String gameName, ChessGame game) {
     this(gameID, whiteUsername, blackUsername, gameName, game, null);
   }
-}
\ No newline at end of file
+}
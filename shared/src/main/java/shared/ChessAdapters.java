@@ -67,10 +67,10 @@ public class ChessAdapters {
         String[] parts = positionString.substring(14, positionString.length() - 1).split(", ");
         int row = Integer.parseInt(parts[0].split("=")[1]);
         int col = Integer.parseInt(parts[1].split("=")[1]);
-        return new ChessPosition(row, col);
+        return ChessPosition.of(row, col);
       } else {
         String[] parts = positionString.split(",");
-        return new ChessPosition(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
+        return ChessPosition.of(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
       }
     }
   }
@@ -96,7 +96,7 @@ public class ChessAdapters {
       if (jsonObject.has("promotionPiece")) {
         promotionPiece = ChessPiece.PieceType.valueOf(jsonObject.get("promotionPiece").getAsString());
       }
-      return new ChessMove(startPosition, endPosition, promotionPiece);
+      return ChessMove.of(startPosition, endPosition, promotionPiece);
     }
   }
 
@@ -107,7 +107,10 @@ public class ChessAdapters {
       jsonObject.add("board", context.serialize(src.getBoard()));
       jsonObject.addProperty("teamTurn", src.getTeamTurn().toString());
       jsonObject.add("lastMove", context.serialize(src.getLastMove()));
-      jsonObject.addProperty("isGameOver", src.isGameOver());
+      jsonObject.addProperty("isGameOver", src.isMarkedGameOver());
+      jsonObject.addProperty("halfmoveClock", src.getHalfmoveClock());
+      jsonObject.addProperty("fullmoveNumber", src.getFullmoveNumber());
+      jsonObject.add("positionHistory", context.serialize(src.getPositionHistory()));
       return jsonObject;
     }
 
@@ -124,6 +127,15 @@ public class ChessAdapters {
       if (jsonObject.has("isGameOver")) {
         game.setGameOver(jsonObject.get("isGameOver").getAsBoolean());
       }
+      if (jsonObject.has("halfmoveClock")) {
+        game.setHalfmoveClock(jsonObject.get("halfmoveClock").getAsInt());
+      }
+      if (jsonObject.has("fullmoveNumber")) {
+        game.setFullmoveNumber(jsonObject.get("fullmoveNumber").getAsInt());
+      }
+      if (jsonObject.has("positionHistory")) {
+        game.setPositionHistory(context.deserialize(jsonObject.get("positionHistory"), long[].class));
+      }
       return game;
     }
   }
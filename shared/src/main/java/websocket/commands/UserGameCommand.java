@@ -20,7 +20,8 @@ public class UserGameCommand {
         CONNECT,
         MAKE_MOVE,
         LEAVE,
-        RESIGN
+        RESIGN,
+        ENGINE_MOVE
     }
 
     public CommandType getCommandType() {
@@ -0,0 +1,51 @@
+package chess;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoardSnapshotTest {
+    private static final ChessMove E4 = ChessMove.of(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null);
+
+    @Test
+    void laterMovesDoNotChangeTheSnapshot() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        BoardSnapshot snapshot = BoardSnapshot.of(game);
+        String fen = game.toFen();
+        long key = game.getKey();
+
+        game.makeMove(E4);
+        game.getBoard().getPiece(ChessPosition.of(1, 5)).setHasMoved(true);
+
+        assertEquals(fen, snapshot.toFen());
+        assertEquals(key, snapshot.getKey());
+        assertEquals(ChessGame.TeamColor.WHITE, snapshot.getTeamTurn());
+        assertNull(snapshot.getLastMove());
+        assertEquals(ChessPiece.PieceType.PAWN, snapshot.getPieceType(ChessPosition.of(2, 5)));
+        assertNull(snapshot.getPieceColor(ChessPosition.of(4, 5)));
+        assertFalse(snapshot.toGame().getBoard().getPiece(1, 5).hasMoved());
+    }
+
+    @Test
+    void readersCannotChangeTheSnapshot() throws InvalidMoveException {
+        BoardSnapshot snapshot = BoardSnapshot.of(ChessGame.fromFen("7k/8/8/8/8/8/8/R3K3 w Q - 0 1"));
+        ChessGame copy = snapshot.toGame();
+        copy.getBoard().getPiece(1, 1).setHasMoved(true);
+        copy.makeMove(ChessMove.of(ChessPosition.of(1, 1), ChessPosition.of(8, 1), null));
+
+        assertEquals(ChessGame.GameStatus.ONGOING, snapshot.getStatus());
+        assertEquals("7k/8/8/8/8/8/8/R3K3 w Q - 0 1", snapshot.toFen());
+        assertEquals(ChessGame.GameStatus.CHECK, copy.getGameStatus());
+    }
+
+    @Test
+    void jsonMatchesACopyOfTheGame() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(E4);
+        BoardSnapshot snapshot = BoardSnapshot.of(game);
+        Gson gson = new Gson();
+
+        assertEquals(gson.toJson(snapshot.toGame()), gson.toJson(snapshot.toJsonTree(gson)));
+    }
+}
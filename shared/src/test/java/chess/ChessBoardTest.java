@@ -0,0 +1,128 @@
+package chess;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static chess.MoveTestUtilities.allValidMoves;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChessBoardTest {
+
+    @Test
+    void undoMoveRestoresBoardAfterRandomGames() throws InvalidMoveException {
+        Random random = new Random(3);
+        for (int gameNumber = 0; gameNumber < 20; gameNumber++) {
+            ChessGame game = new ChessGame();
+            for (int ply = 0; ply < 150; ply++) {
+                List<ChessMove> moves = allValidMoves(game);
+                if (moves.isEmpty()) {
+                    break;
+                }
+                ChessBoard board = game.getBoard();
+                ChessBoard before = board.clone();
+                long movedBefore = movedMask(board);
+                for (ChessMove move : moves) {
+                    board.doMove(move);
+                    board.undoMove();
+                    assertEquals(before, board, "Board changed after undoing " + move);
+                    assertEquals(movedBefore, movedMask(board), "hasMoved changed after undoing " + move);
+                }
+                game.makeMove(moves.get(random.nextInt(moves.size())));
+            }
+        }
+    }
+
+    @Test
+    void cachedAttacksFollowMovesAndUndo() throws InvalidMoveException {
+        Random random = new Random(5);
+        ChessGame game = new ChessGame();
+        for (int ply = 0; ply < 200; ply++) {
+            List<ChessMove> moves = allValidMoves(game);
+            if (moves.isEmpty()) {
+                break;
+            }
+            ChessBoard board = game.getBoard();
+            long whiteAttacks = board.getAttacks(ChessGame.TeamColor.WHITE);
+            ChessMove move = moves.get(random.nextInt(moves.size()));
+            board.doMove(move);
+            assertAttacksMatch(board);
+            board.undoMove();
+            assertEquals(whiteAttacks, board.getAttacks(ChessGame.TeamColor.WHITE));
+            game.makeMove(move);
+        }
+    }
+
+    private static void assertAttacksMatch(ChessBoard board) {
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            long expected = 0;
+            for (int square = 0; square < 64; square++) {
+                if (chess.movegen.MoveGenerator.isSquareAttacked(board, square, color)) {
+                    expected |= 1L << square;
+                }
+            }
+            assertEquals(expected, board.getAttacks(color), color + " attacks");
+        }
+    }
+
+    @Test
+    void incrementalKeyMatchesRebuiltBoard() throws InvalidMoveException {
+        Random random = new Random(11);
+        ChessGame game = new ChessGame();
+        for (int ply = 0; ply < 200; ply++) {
+            List<ChessMove> moves = allValidMoves(game);
+            if (moves.isEmpty()) {
+                break;
+            }
+            game.makeMove(moves.get(random.nextInt(moves.size())));
+            ChessBoard board = game.getBoard();
+            ChessBoard rebuilt = new ChessBoard();
+            for (var entry : board.getBoard().entrySet()) {
+                rebuilt.addPiece(entry.getKey(), entry.getValue());
+            }
+            assertEquals(rebuilt.getKey(), board.getKey());
+            assertEquals(board.getKey(), new Gson().fromJson(new Gson().toJson(board), ChessBoard.class).getKey());
+        }
+    }
+
+    @Test
+    void doMoveHandlesSpecialMoves() {
+        ChessBoard board = new ChessBoard();
+        board.addPiece(new ChessPosition(1, 5), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        board.addPiece(new ChessPosition(1, 8), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
+        board.addPiece(new ChessPosition(5, 5), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+        board.addPiece(new ChessPosition(5, 4), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+        board.addPiece(new ChessPosition(7, 1), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+        ChessBoard before = board.clone();
+
+        board.doMove(new ChessMove(new ChessPosition(1, 5), new ChessPosition(1, 7), null));
+        assertEquals(ChessPiece.PieceType.ROOK, board.getPiece(new ChessPosition(1, 6)).getPieceType());
+        assertNull(board.getPiece(new ChessPosition(1, 8)));
+
+        board.doMove(new ChessMove(new ChessPosition(5, 5), new ChessPosition(6, 4), null));
+        assertNull(board.getPiece(new ChessPosition(5, 4)));
+
+        board.doMove(new ChessMove(new ChessPosition(7, 1), new ChessPosition(8, 1), ChessPiece.PieceType.KNIGHT));
+        assertEquals(ChessPiece.PieceType.KNIGHT, board.getPiece(new ChessPosition(8, 1)).getPieceType());
+
+        board.undoMove();
+        board.undoMove();
+        board.undoMove();
+        assertEquals(before, board);
+        assertFalse(board.getPiece(new ChessPosition(1, 5)).hasMoved());
+        assertEquals(0, board.getUndoDepth());
+    }
+
+    private static long movedMask(ChessBoard board) {
+        long mask = 0;
+        for (int square = 0; square < 64; square++) {
+            ChessPiece piece = board.getPiece(square);
+            if (piece != null && piece.hasMoved()) {
+                mask |= 1L << square;
+            }
+        }
+        return mask;
+    }
+}
@@ -0,0 +1,90 @@
+package chess;
+
+import chess.movegen.Move;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChessGameCodecTest {
+
+    @Test
+    void startingPositionRoundTrips() {
+        ChessGame game = new ChessGame();
+        byte[] bytes = ChessGameCodec.encode(game);
+        assertEquals(48, bytes.length);
+
+        ChessGame decoded = ChessGameCodec.decode(bytes);
+        assertEquals(game.getBoard(), decoded.getBoard());
+        assertEquals(game.toFen(), decoded.toFen());
+        assertEquals(game.getKey(), decoded.getKey());
+        assertNull(decoded.getLastMove());
+        assertEquals(ChessGame.GameStatus.ONGOING, decoded.getGameStatus());
+    }
+
+    @Test
+    void playedGameRoundTrips() throws InvalidMoveException {
+        ChessGame game = ChessGame.fromFen("r3k2r/1P6/8/3pP3/8/8/8/R3K2R w KQkq d6 0 20");
+        game.makeMove(ChessMove.of(ChessPosition.of(5, 5), ChessPosition.of(6, 4), null));
+        game.makeMove(ChessMove.of(ChessPosition.of(8, 8), ChessPosition.of(8, 7), null));
+        game.makeMove(ChessMove.of(ChessPosition.of(7, 2), ChessPosition.of(8, 1), ChessPiece.PieceType.KNIGHT));
+        game.makeMove(ChessMove.of(ChessPosition.of(8, 5), ChessPosition.of(7, 6), null));
+        game.makeMove(ChessMove.of(ChessPosition.of(1, 5), ChessPosition.of(1, 6), null));
+
+        ChessGame decoded = ChessGameCodec.decode(ChessGameCodec.encode(game));
+        assertEquals(game.toFen(), decoded.toFen());
+        assertEquals(game.getKey(), decoded.getKey());
+        assertEquals(game.getLastMove(), decoded.getLastMove());
+        assertEquals(game.getHalfmoveClock(), decoded.getHalfmoveClock());
+        assertEquals(game.getFullmoveNumber(), decoded.getFullmoveNumber());
+        assertArrayEquals(game.getPositionHistory(), decoded.getPositionHistory());
+        assertFalse(decoded.getBoard().getPiece(1, 8).hasMoved());
+        assertTrue(decoded.getBoard().getPiece(1, 6).hasMoved());
+        assertEquals(game.validMoves(ChessPosition.of(7, 6)), decoded.validMoves(ChessPosition.of(7, 6)));
+
+        ChessMove promotion = ChessMove.of(ChessPosition.of(7, 1), ChessPosition.of(8, 1), ChessPiece.PieceType.QUEEN);
+        ChessGame withPromotion = ChessGame.fromFen("4k3/P7/8/8/8/8/8/4K3 b - - 0 1");
+        withPromotion.setLastMove(promotion);
+        assertEquals(promotion, ChessGameCodec.decode(ChessGameCodec.encode(withPromotion)).getLastMove());
+    }
+
+    @Test
+    void keepsResignation() {
+        ChessGame game = new ChessGame();
+        game.setGameOver(true);
+        assertEquals(ChessGame.GameStatus.RESIGNED, ChessGameCodec.decode(ChessGameCodec.encode(game)).getGameStatus());
+    }
+
+    @Test
+    void rejectsUnknownOrDamagedBytes() {
+        byte[] bytes = ChessGameCodec.encode(new ChessGame());
+        byte[] future = bytes.clone();
+        future[0] = ChessGameCodec.VERSION + 1;
+        assertThrows(IllegalArgumentException.class, () -> ChessGameCodec.decode(future));
+        assertThrows(IllegalArgumentException.class, () -> ChessGameCodec.decode(Arrays.copyOf(bytes, 20)));
+        assertThrows(IllegalArgumentException.class, () -> ChessGameCodec.decode(Arrays.copyOf(bytes, 49)));
+        assertThrows(IllegalArgumentException.class, () -> ChessGameCodec.decode(new byte[0]));
+    }
+
+    @Test
+    void movesUseTheEngineLayout() {
+        ChessMove promotion = ChessMove.of(ChessPosition.of(7, 1), ChessPosition.of(8, 1), ChessPiece.PieceType.KNIGHT);
+        int bits = ChessGameCodec.encodeMove(promotion);
+        assertEquals(Move.encode(promotion), bits);
+        assertEquals(promotion, ChessGameCodec.decodeMove((short) bits));
+        assertThrows(IllegalArgumentException.class, () -> ChessGameCodec.decodeMove(7 << 12));
+        assertThrows(IllegalArgumentException.class, () -> ChessGameCodec.decodeMove(Move.CAPTURE));
+
+        int a7a8 = Move.encode(ChessMove.of(ChessPosition.of(7, 1), ChessPosition.of(8, 1), null));
+        int a3a2 = Move.encode(ChessMove.of(ChessPosition.of(3, 1), ChessPosition.of(2, 1), null));
+        assertThrows(IllegalArgumentException.class, () -> ChessGameCodec.decodeMove(
+                a7a8 | (ChessPiece.PieceType.KING.ordinal() + 1) << 12));
+        assertThrows(IllegalArgumentException.class, () -> ChessGameCodec.decodeMove(
+                a7a8 | (ChessPiece.PieceType.PAWN.ordinal() + 1) << 12));
+        assertThrows(IllegalArgumentException.class, () -> ChessGameCodec.decodeMove(
+                a3a2 | (ChessPiece.PieceType.QUEEN.ordinal() + 1) << 12));
+        assertEquals(ChessPiece.PieceType.ROOK, ChessGameCodec.decodeMove(
+                a7a8 | (ChessPiece.PieceType.ROOK.ordinal() + 1) << 12).getPromotionPiece());
+    }
+}
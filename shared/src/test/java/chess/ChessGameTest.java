@@ -0,0 +1,208 @@
+package chess;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.junit.jupiter.api.Test;
+import shared.ChessAdapters;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChessGameTest {
+
+    @Test
+    void statusFollowsTheGame() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        assertEquals(ChessGame.GameStatus.ONGOING, game.getGameStatus());
+
+        game.makeMove(move(2, 6, 3, 6));
+        game.makeMove(move(7, 5, 5, 5));
+        game.makeMove(move(2, 7, 4, 7));
+        assertEquals(ChessGame.GameStatus.ONGOING, game.getGameStatus());
+
+        // Fool's mate
+        game.makeMove(move(8, 4, 4, 8));
+        assertEquals(ChessGame.GameStatus.CHECKMATE, game.getGameStatus());
+        assertTrue(game.isGameOver());
+        assertThrows(InvalidMoveException.class, () -> game.makeMove(move(2, 1, 3, 1)));
+    }
+
+    @Test
+    void checkAndResignation() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(move(2, 5, 4, 5));
+        game.makeMove(move(7, 6, 6, 6));
+        game.makeMove(move(1, 4, 5, 8));
+        assertEquals(ChessGame.GameStatus.CHECK, game.getGameStatus());
+        assertFalse(game.isGameOver());
+
+        game.setGameOver(true);
+        assertEquals(ChessGame.GameStatus.RESIGNED, game.getGameStatus());
+        assertTrue(game.isGameOver());
+    }
+
+    @Test
+    void committedMovesLeaveNothingToUndo() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(move(2, 5, 4, 5));
+        game.makeMove(move(7, 4, 5, 4));
+        game.makeMove(move(4, 5, 5, 4));
+        assertEquals(0, game.getBoard().getUndoDepth());
+    }
+
+    @Test
+    void plyCountsBothSidesMoves() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        assertEquals(0, game.getPly());
+        game.makeMove(move(2, 5, 4, 5));
+        assertEquals(1, game.getPly());
+        game.makeMove(move(7, 4, 5, 4));
+        assertEquals(2, game.getPly());
+        assertEquals(2, game.copy().getPly());
+    }
+
+    @Test
+    void stalemateOnReplacedBoard() {
+        ChessGame game = new ChessGame();
+        ChessBoard board = new ChessBoard();
+        board.addPiece(new ChessPosition(8, 8), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        board.addPiece(new ChessPosition(6, 7), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN));
+        board.addPiece(new ChessPosition(1, 1), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        assertEquals(ChessGame.GameStatus.ONGOING, game.getGameStatus());
+
+        game.setBoard(board);
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        assertEquals(ChessGame.GameStatus.STALEMATE, game.getGameStatus());
+    }
+
+    @Test
+    void keyTracksTranspositionsAndSideToMove() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        long start = game.getKey();
+
+        game.makeMove(move(1, 7, 3, 6));
+        assertNotEquals(start, game.getKey());
+        game.makeMove(move(8, 7, 6, 6));
+        game.makeMove(move(3, 6, 1, 7));
+        game.makeMove(move(6, 6, 8, 7));
+        assertEquals(start, game.getKey());
+
+        game.makeMove(move(1, 7, 3, 6));
+        long afterKnight = game.getKey();
+        game.setTeamTurn(ChessGame.TeamColor.WHITE);
+        assertEquals(afterKnight ^ Zobrist.blackToMove(), game.getKey());
+    }
+
+    @Test
+    void keyCoversCastlingAndEnPassant() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(move(2, 5, 4, 5));
+        game.makeMove(move(7, 1, 6, 1));
+        game.makeMove(move(4, 5, 5, 5));
+        game.makeMove(move(7, 4, 5, 4));
+        long withEnPassant = game.getKey();
+        game.setLastMove(null);
+        assertEquals(withEnPassant ^ Zobrist.enPassant(3), game.getKey());
+
+        long beforeRookMoved = game.getKey();
+        game.getBoard().getPiece(new ChessPosition(1, 8)).setHasMoved(true);
+        assertEquals(beforeRookMoved ^ Zobrist.castling(15) ^ Zobrist.castling(14), game.getKey());
+    }
+
+    @Test
+    void castlingChecksTheSquaresTheKingCrosses() {
+        for (ChessGame.MoveGenerationMode mode : ChessGame.MoveGenerationMode.values()) {
+            // A rook on b8 only covers a square the king never crosses
+            ChessGame game = ChessGame.fromFen("1r2k3/8/8/8/8/8/8/R3K2R w KQ - 0 1");
+            game.setMoveGenerationMode(mode);
+            assertTrue(game.validMoves(new ChessPosition(1, 5)).contains(move(1, 5, 1, 3)), mode.name());
+            assertTrue(game.validMoves(new ChessPosition(1, 5)).contains(move(1, 5, 1, 7)), mode.name());
+
+            // A pawn on g2 attacks the f1 square the king passes over
+            game = ChessGame.fromFen("4k3/8/8/8/8/8/6p1/R3K2R w KQ - 0 1");
+            game.setMoveGenerationMode(mode);
+            assertTrue(game.validMoves(new ChessPosition(1, 5)).contains(move(1, 5, 1, 3)), mode.name());
+            assertFalse(game.validMoves(new ChessPosition(1, 5)).contains(move(1, 5, 1, 7)), mode.name());
+        }
+    }
+
+    @Test
+    void threefoldRepetitionEndsTheGame() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        for (int cycle = 0; cycle < 2; cycle++) {
+            assertEquals(ChessGame.GameStatus.ONGOING, game.getGameStatus());
+            game.makeMove(move(1, 7, 3, 6));
+            game.makeMove(move(8, 7, 6, 6));
+            game.makeMove(move(3, 6, 1, 7));
+            game.makeMove(move(6, 6, 8, 7));
+        }
+        assertEquals(ChessGame.GameStatus.THREEFOLD_REPETITION, game.getGameStatus());
+        assertTrue(game.isGameOver());
+
+        Gson gson = new GsonBuilder()
+                .registerTypeAdapter(ChessGame.class, new ChessAdapters.ChessGameAdapter())
+                .registerTypeAdapter(ChessBoard.class, new ChessAdapters.ChessBoardAdapter())
+                .registerTypeAdapter(ChessPiece.class, new ChessAdapters.ChessPieceAdapter())
+                .registerTypeAdapter(ChessPosition.class, new ChessAdapters.ChessPositionAdapter())
+                .registerTypeAdapter(ChessMove.class, new ChessAdapters.ChessMoveAdapter())
+                .create();
+        ChessGame restored = gson.fromJson(gson.toJson(game), ChessGame.class);
+        assertEquals(ChessGame.GameStatus.THREEFOLD_REPETITION, restored.getGameStatus());
+        assertEquals(game.getHalfmoveClock(), restored.getHalfmoveClock());
+    }
+
+    @Test
+    void pawnMoveResetsHalfmoveClock() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(move(1, 7, 3, 6));
+        game.makeMove(move(8, 7, 6, 6));
+        assertEquals(2, game.getHalfmoveClock());
+        assertEquals(2, game.getPositionHistory().length);
+
+        game.makeMove(move(2, 5, 4, 5));
+        assertEquals(0, game.getHalfmoveClock());
+        assertEquals(0, game.getPositionHistory().length);
+
+        game.setHalfmoveClock(99);
+        game.makeMove(move(8, 2, 6, 3));
+        assertEquals(ChessGame.GameStatus.FIFTY_MOVE_RULE, game.getGameStatus());
+    }
+
+    @Test
+    void perftFromStartingPosition() {
+        ChessGame game = new ChessGame();
+        assertEquals(20, game.perft(1));
+        assertEquals(400, game.perft(2));
+        assertEquals(8902, game.perft(3));
+        assertEquals(197281, game.perft(4));
+        assertEquals(new ChessGame().getKey(), game.getKey());
+    }
+
+    @Test
+    void parallelPerftMatchesSequential() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(move(2, 5, 4, 5));
+        game.makeMove(move(7, 4, 5, 4));
+        long key = game.getKey();
+
+        Map<ChessMove, Long> divide = game.divide(3, 4);
+        assertEquals(31, divide.size());
+        long total = 0;
+        for (Map.Entry<ChessMove, Long> entry : divide.entrySet()) {
+            ChessGame child = new ChessGame();
+            child.makeMove(move(2, 5, 4, 5));
+            child.makeMove(move(7, 4, 5, 4));
+            child.makeMove(entry.getKey());
+            assertEquals(child.perft(2), entry.getValue(), "Divide differs for " + entry.getKey());
+            total += entry.getValue();
+        }
+        assertEquals(game.perft(3), total);
+        assertEquals(197281, new ChessGame().perft(4, 4));
+        assertEquals(key, game.getKey());
+    }
+
+    private static ChessMove move(int startRow, int startCol, int endRow, int endCol) {
+        return new ChessMove(new ChessPosition(startRow, startCol), new ChessPosition(endRow, endCol), null);
+    }
+}
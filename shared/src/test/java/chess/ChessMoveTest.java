@@ -0,0 +1,36 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChessMoveTest {
+
+    @Test
+    void factoriesReturnSharedInstances() {
+        assertSame(ChessPosition.of(2, 5), ChessPosition.of(2, 5));
+        assertSame(ChessPosition.of(2, 5), ChessPosition.of(ChessBoard.squareIndex(2, 5)));
+        assertEquals(new ChessPosition(2, 5), ChessPosition.of(2, 5));
+
+        ChessMove move = ChessMove.of(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        assertSame(move, ChessMove.of(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null));
+        assertEquals(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null), move);
+
+        ChessMove promotion = ChessMove.of(ChessPosition.of(7, 1), ChessPosition.of(8, 2), ChessPiece.PieceType.KNIGHT);
+        assertSame(promotion, ChessMove.of(ChessPosition.of(7, 1), ChessPosition.of(8, 2), ChessPiece.PieceType.KNIGHT));
+        assertEquals(ChessPiece.PieceType.KNIGHT, promotion.getPromotionPiece());
+    }
+
+    @Test
+    void offBoardAndUnusualMovesStillWork() {
+        ChessPosition offBoard = ChessPosition.of(9, 1);
+        assertEquals(9, offBoard.getRow());
+        assertEquals(new ChessPosition(9, 1), offBoard);
+
+        ChessMove move = ChessMove.of(ChessPosition.of(1, 1), offBoard, null);
+        assertEquals(offBoard, move.getEndPosition());
+
+        ChessMove oddPromotion = ChessMove.of(ChessPosition.of(1, 1), ChessPosition.of(5, 5), ChessPiece.PieceType.QUEEN);
+        assertEquals(new ChessMove(new ChessPosition(1, 1), new ChessPosition(5, 5), ChessPiece.PieceType.QUEEN), oddPromotion);
+    }
+}
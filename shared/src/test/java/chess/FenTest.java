@@ -0,0 +1,86 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FenTest {
+    private static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    @Test
+    void startingPositionRoundTrips() {
+        ChessGame game = ChessGame.fromFen(START);
+        assertEquals(new ChessGame().getBoard(), game.getBoard());
+        assertEquals(new ChessGame().getKey(), game.getKey());
+        assertEquals(START, game.toFen());
+        assertEquals(START, new ChessGame().toFen());
+    }
+
+    @Test
+    void tracksMovesAndClocks() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(ChessMove.of(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null));
+        assertEquals("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1", game.toFen());
+        game.makeMove(ChessMove.of(ChessPosition.of(8, 7), ChessPosition.of(6, 6), null));
+        game.makeMove(ChessMove.of(ChessPosition.of(1, 5), ChessPosition.of(2, 5), null));
+        String fen = game.toFen();
+        assertEquals("rnbqkb1r/pppppppp/5n2/8/4P3/8/PPPPKPPP/RNBQ1BNR b kq - 2 2", fen);
+
+        ChessGame parsed = ChessGame.fromFen(fen);
+        assertEquals(fen, parsed.toFen());
+        assertEquals(game.getKey(), parsed.getKey());
+    }
+
+    @Test
+    void promotedRookGivesNoCastlingRight() throws InvalidMoveException {
+        ChessGame game = ChessGame.fromFen("4k3/8/8/8/8/8/7p/R3K3 b Q - 0 1");
+        game.makeMove(ChessMove.of(ChessPosition.of(2, 8), ChessPosition.of(1, 8), ChessPiece.PieceType.ROOK));
+        assertEquals("4k3/8/8/8/8/8/8/R3K2r w Q - 0 2", game.toFen());
+        assertEquals(ChessGame.fromFen("4k3/8/8/8/8/8/8/R3K2r w Q - 0 2").getKey(), game.getKey());
+    }
+
+    @Test
+    void enPassantSquareBecomesLastMove() {
+        ChessGame game = ChessGame.fromFen("4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 3");
+        assertEquals(ChessMove.of(ChessPosition.of(7, 4), ChessPosition.of(5, 4), null), game.getLastMove());
+        assertTrue(game.validMoves(ChessPosition.of(5, 5))
+                .contains(ChessMove.of(ChessPosition.of(5, 5), ChessPosition.of(6, 4), null)));
+    }
+
+    @Test
+    void clocksAreOptional() {
+        ChessGame game = ChessGame.fromFen("8/8/8/8/8/8/8/K6k b - -");
+        assertEquals(ChessGame.TeamColor.BLACK, game.getTeamTurn());
+        assertEquals(0, game.getHalfmoveClock());
+        assertEquals(1, game.getFullmoveNumber());
+    }
+
+    @Test
+    void rejectsMalformedFen() {
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP w KQkq - 0 1"));
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen("rnbqkbnr/ppppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1"));
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen(START.replace(" w ", " x ")));
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen(START.replace("KQkq", "KX")));
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen(START + " extra"));
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen(START.replace(" - ", " e3 ")));
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen(START.replace(" 0 1", " 0 99999999999")));
+    }
+
+    @Test
+    void perftFromEndgamePosition() {
+        ChessGame game = ChessGame.fromFen("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1");
+        assertEquals(14, game.perft(1));
+        assertEquals(191, game.perft(2));
+        assertEquals(2812, game.perft(3));
+        assertEquals(43238, game.perft(4));
+    }
+
+    @Test
+    void perftFromKiwipete() {
+        ChessGame game = ChessGame.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        assertEquals(48, game.perft(1));
+        assertEquals(2039, game.perft(2));
+        assertEquals(97862, game.perft(3));
+        assertEquals(4085603, game.perft(4));
+    }
+}
@@ -0,0 +1,33 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Helpers shared by the move generation tests.
+ */
+public final class MoveTestUtilities {
+    private MoveTestUtilities() {
+    }
+
+    /**
+     * Every move ChessGame.validMoves allows for the side to move.
+     */
+    public static List<ChessMove> allValidMoves(ChessGame game) {
+        return allValidMoves(game, game.getTeamTurn());
+    }
+
+    /**
+     * Every move ChessGame.validMoves allows for the pieces of {@code color}.
+     */
+    public static List<ChessMove> allValidMoves(ChessGame game, ChessGame.TeamColor color) {
+        List<ChessMove> moves = new ArrayList<>();
+        long pieces = game.getBoard().getOccupancy(color);
+        while (pieces != 0) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            moves.addAll(game.validMoves(new ChessPosition(square / 8 + 1, square % 8 + 1)));
+        }
+        return moves;
+    }
+}
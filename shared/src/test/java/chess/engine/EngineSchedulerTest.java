@@ -0,0 +1,86 @@
+package chess.engine;
+
+import chess.ChessGame;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EngineSchedulerTest {
+
+    @Test
+    void splitsThreadsBetweenActiveGames() throws InterruptedException {
+        EngineScheduler scheduler = new EngineScheduler(8);
+        assertEquals(8, scheduler.threadsPerSearch());
+        scheduler.setActiveGames(3);
+        assertEquals(2, scheduler.threadsPerSearch());
+        scheduler.setActiveGames(20);
+        assertEquals(1, scheduler.threadsPerSearch());
+        scheduler.setActiveGames(0);
+        assertEquals(8, scheduler.threadsPerSearch());
+
+        try (EngineScheduler.Lease lease = scheduler.acquire()) {
+            assertEquals(8, lease.threads());
+            assertEquals(0, scheduler.availableThreads());
+        }
+        assertEquals(8, scheduler.availableThreads());
+    }
+
+    @Test
+    void neverHandsOutMoreThanTheCap() throws InterruptedException {
+        EngineScheduler scheduler = new EngineScheduler(4);
+        scheduler.setActiveGames(2);
+        EngineScheduler.Lease first = scheduler.acquire();
+        EngineScheduler.Lease second = scheduler.acquire();
+        assertEquals(2, first.threads());
+        assertEquals(2, second.threads());
+
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread waiter = new Thread(() -> {
+            try (EngineScheduler.Lease third = scheduler.acquire()) {
+                acquired.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiter.start();
+        assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+
+        first.close();
+        first.close();
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        waiter.join();
+        second.close();
+        assertEquals(4, scheduler.availableThreads());
+    }
+
+    @Test
+    void searchDoesNotWaitPastItsTimeLimit() throws InterruptedException {
+        Engine engine = new Engine(new TranspositionTable(1), new EngineScheduler(1));
+        try (EngineScheduler.Lease busy = engine.getScheduler().acquire()) {
+            assertNull(engine.getScheduler().acquire(10));
+
+            long start = System.nanoTime();
+            SearchResult result = engine.search(new ChessGame(), SearchLimits.ofTime(100));
+            assertNotNull(result.move());
+            assertEquals(1, result.depth());
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        }
+        assertEquals(1, engine.getScheduler().availableThreads());
+    }
+
+    @Test
+    void parallelSearchAgreesWithSingleThreadedSearch() {
+        ChessGame game = ChessGame.fromFen("7k/8/8/8/8/8/R7/1R4K1 w - - 0 1");
+        Engine engine = new Engine(new TranspositionTable(1), new EngineScheduler(3));
+        SearchResult result = engine.search(game, SearchLimits.ofDepth(5));
+        assertEquals(Search.MATE - 3, result.score());
+        assertEquals(3, engine.getScheduler().availableThreads());
+
+        SearchResult timed = engine.search(new ChessGame(), SearchLimits.ofTime(100), 4);
+        assertNotNull(timed.move());
+        assertTrue(timed.nodes() > 0);
+    }
+}
@@ -0,0 +1,67 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EngineTest {
+    private final Engine engine = new Engine();
+
+    @Test
+    void findsMateInOne() {
+        ChessGame game = ChessGame.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        SearchResult result = engine.search(game, SearchLimits.ofDepth(4));
+        assertEquals(ChessMove.of(ChessPosition.of(1, 1), ChessPosition.of(8, 1), null), result.move());
+        assertTrue(result.isMate());
+        assertTrue(result.score() > 0);
+    }
+
+    @Test
+    void findsMateInTwo() {
+        // Rook ladder: one rook cuts off the seventh rank, the other mates on the eighth
+        ChessGame game = ChessGame.fromFen("7k/8/8/8/8/8/R7/1R4K1 w - - 0 1");
+        SearchResult result = engine.search(game, SearchLimits.ofDepth(5));
+        assertEquals(Search.MATE - 3, result.score());
+    }
+
+    @Test
+    void capturesHangingQueen() {
+        ChessGame game = ChessGame.fromFen("4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1");
+        SearchResult result = engine.search(game, SearchLimits.ofDepth(3));
+        assertEquals(ChessMove.of(ChessPosition.of(2, 4), ChessPosition.of(5, 4), null), result.move());
+    }
+
+    @Test
+    void stopsAtNodeLimitWithoutTouchingTheGame() {
+        ChessGame game = new ChessGame();
+        String fen = game.toFen();
+        SearchResult result = engine.search(game, SearchLimits.ofNodes(5000));
+        assertNotNull(result.move());
+        assertTrue(result.nodes() <= 5000);
+        assertTrue(game.validMoves(result.move().getStartPosition()).contains(result.move()));
+        assertEquals(fen, game.toFen());
+    }
+
+    @Test
+    void stopsWithinTimeBudget() {
+        long start = System.currentTimeMillis();
+        SearchResult result = engine.search(new ChessGame(), SearchLimits.ofTime(100));
+        assertNotNull(result.move());
+        assertTrue(result.depth() >= 1);
+        assertTrue(System.currentTimeMillis() - start < 2000);
+    }
+
+    @Test
+    void noMoveWhenGameIsOver() {
+        ChessGame mated = ChessGame.fromFen("R5k1/5ppp/8/8/8/8/8/6K1 b - - 1 1");
+        SearchResult result = engine.search(mated, SearchLimits.ofDepth(3));
+        assertNull(result.move());
+        assertTrue(result.isMate());
+
+        ChessGame stalemated = ChessGame.fromFen("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1");
+        assertEquals(0, engine.search(stalemated, SearchLimits.ofDepth(3)).score());
+    }
+}
@@ -0,0 +1,115 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpeningBookTest {
+    private static final ChessMove E4 = move(2, 5, 4, 5);
+    private static final ChessMove D4 = move(2, 4, 4, 4);
+    private static final ChessMove E5 = move(7, 5, 5, 5);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void picksBookMovesByWeight() throws IOException, InvalidMoveException {
+        ChessGame start = new ChessGame();
+        ChessGame afterE4 = new ChessGame();
+        afterE4.makeMove(E4);
+        Path file = directory.resolve("book.bin");
+        new OpeningBook.Builder()
+                .add(start, D4, 1)
+                .add(afterE4, E5, 7)
+                .add(start, E4, 3)
+                .write(file);
+        assertEquals(48, Files.size(file));
+
+        OpeningBook book = OpeningBook.open(file);
+        assertEquals(3, book.size());
+        assertEquals(E5, book.pickMove(afterE4, new Random(1)));
+
+        Map<ChessMove, Integer> picks = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 4000; i++) {
+            picks.merge(book.pickMove(start, random), 1, Integer::sum);
+        }
+        assertEquals(2, picks.size());
+        assertTrue(picks.get(E4) > 2 * picks.get(D4));
+
+        ChessGame outOfBook = ChessGame.fromFen("4k3/8/8/8/8/8/8/4K3 w - - 0 1");
+        assertNull(book.pickMove(outOfBook, random));
+    }
+
+    @Test
+    void skipsIllegalEntries() throws IOException {
+        ChessGame start = new ChessGame();
+        Path file = directory.resolve("illegal.bin");
+        new OpeningBook.Builder()
+                .add(start, move(2, 5, 5, 5), 1000)
+                .add(start, E5, 1000)
+                .add(start, D4, 1)
+                .write(file);
+
+        OpeningBook book = OpeningBook.open(file);
+        Random random = new Random(3);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(D4, book.pickMove(start, random));
+        }
+    }
+
+    @Test
+    void castlingUsesKingTakesRook() throws IOException {
+        ChessGame game = ChessGame.fromFen("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+        ChessMove castle = move(1, 5, 1, 7);
+        int bits = OpeningBook.encodeMove(game.getBoard(), castle);
+        assertEquals(7, bits & 7);
+        assertEquals(castle, OpeningBook.decodeMove(game.getBoard(), bits));
+
+        ChessMove promotion = ChessMove.of(ChessPosition.of(7, 1), ChessPosition.of(8, 1),
+                ChessPiece.PieceType.KNIGHT);
+        assertEquals(1, OpeningBook.encodeMove(game.getBoard(), promotion) >>> 12);
+        assertEquals(promotion, OpeningBook.decodeMove(game.getBoard(),
+                OpeningBook.encodeMove(game.getBoard(), promotion)));
+
+        Path file = directory.resolve("castle.bin");
+        new OpeningBook.Builder().add(game, castle, 1).write(file);
+        assertEquals(castle, OpeningBook.open(file).pickMove(game, new Random()));
+    }
+
+    @Test
+    void engineFallsBackToSearchOutOfBook() throws IOException {
+        Path file = directory.resolve("start.bin");
+        new OpeningBook.Builder().add(new ChessGame(), D4, 1).write(file);
+        Engine engine = new Engine();
+        engine.setOpeningBook(OpeningBook.open(file));
+        assertEquals(D4, engine.chooseMove(new ChessGame(), SearchLimits.ofDepth(1)));
+
+        ChessGame mateInOne = ChessGame.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        assertEquals(move(1, 1, 8, 1), engine.chooseMove(mateInOne, SearchLimits.ofDepth(3)));
+    }
+
+    @Test
+    void rejectsFilesThatAreNotBooks() throws IOException {
+        Path file = directory.resolve("broken.bin");
+        Files.write(file, new byte[17]);
+        assertThrows(IOException.class, () -> OpeningBook.open(file));
+    }
+
+    private static ChessMove move(int fromRow, int fromCol, int toRow, int toCol) {
+        return ChessMove.of(ChessPosition.of(fromRow, fromCol), ChessPosition.of(toRow, toCol), null);
+    }
+}
@@ -0,0 +1,104 @@
+package chess.engine;
+
+import chess.ChessGame;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TranspositionTableTest {
+
+    @Test
+    void sizeIsAPowerOfTwo() {
+        assertEquals(1 << 16, new TranspositionTable(1).size());
+        assertEquals(1 << 17, new TranspositionTable(3).size());
+        assertThrows(IllegalArgumentException.class, () -> new TranspositionTable(0));
+    }
+
+    @Test
+    void storesAndProbesEntries() {
+        TranspositionTable table = new TranspositionTable(1);
+        long key = 0x123456789ABCDEFL;
+        assertEquals(TranspositionTable.MISS, table.probe(key));
+
+        table.store(key, 0x1234, -Search.MATE + 7, 9, TranspositionTable.LOWER_BOUND);
+        long entry = table.probe(key);
+        assertEquals(0x1234, TranspositionTable.move(entry));
+        assertEquals(-Search.MATE + 7, TranspositionTable.score(entry));
+        assertEquals(9, TranspositionTable.depth(entry));
+        assertEquals(TranspositionTable.LOWER_BOUND, TranspositionTable.bound(entry));
+
+        // Same slot, different key
+        assertEquals(TranspositionTable.MISS, table.probe(key + table.size()));
+        assertEquals(3, table.getProbes());
+        assertEquals(1, table.getHits());
+        assertEquals(1.0 / 3, table.getHitRate());
+    }
+
+    @Test
+    void keepsDeeperEntriesFromTheSameSearch() {
+        TranspositionTable table = new TranspositionTable(1, 0);
+        table.store(42, 1, 10, 8, TranspositionTable.EXACT);
+        table.store(42, 2, 20, 3, TranspositionTable.EXACT);
+        assertEquals(8, TranspositionTable.depth(table.probe(42)));
+
+        table.newSearch();
+        table.store(42, 2, 20, 3, TranspositionTable.EXACT);
+        assertEquals(3, TranspositionTable.depth(table.probe(42)));
+
+        table.clear();
+        assertEquals(TranspositionTable.MISS, table.probe(42));
+    }
+
+    @Test
+    void searchesWithinOneAgingPeriodShareAGeneration() {
+        TranspositionTable table = new TranspositionTable(1, 60_000);
+        table.store(42, 1, 10, 8, TranspositionTable.EXACT);
+        // Another game's search starting must not age this entry
+        table.newSearch();
+        table.store(42, 2, 20, 3, TranspositionTable.EXACT);
+        assertEquals(8, TranspositionTable.depth(table.probe(42)));
+    }
+
+    @Test
+    void concurrentWritersNeverProduceMismatchedEntries() throws InterruptedException {
+        // Every key maps to the same slot, and its data can be recomputed from the key
+        TranspositionTable table = new TranspositionTable(1);
+        AtomicLong mismatches = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int seed = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 200_000; i++) {
+                    long key = (long) (i * 4 + seed) * table.size();
+                    table.store(key, (int) (key >>> 16) & 0x7FFF, seed, 1, TranspositionTable.EXACT);
+                    long probe = (long) ((i + 1) * 4 + (3 - seed)) * table.size();
+                    long entry = table.probe(probe);
+                    if (entry != TranspositionTable.MISS
+                            && TranspositionTable.move(entry) != ((int) (probe >>> 16) & 0x7FFF)) {
+                        mismatches.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, mismatches.get());
+    }
+
+    @Test
+    void engineReusesEntriesAcrossSearches() {
+        Engine engine = new Engine(new TranspositionTable(1), new EngineScheduler(1));
+        ChessGame game = ChessGame.fromFen("r1bqkbnr/pppp1ppp/2n5/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R b KQkq - 3 3");
+        SearchResult first = engine.search(game, SearchLimits.ofDepth(4));
+        SearchResult second = engine.search(game, SearchLimits.ofDepth(4));
+        assertEquals(first.move(), second.move());
+        assertTrue(second.nodes() < first.nodes());
+        assertTrue(engine.getTranspositionTable().getHits() > 0);
+    }
+}
@@ -0,0 +1,76 @@
+package chess.eval;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.movegen.LegalMoveGenerator;
+import chess.movegen.Move;
+import chess.movegen.MoveList;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EvaluatorTest {
+
+    @Test
+    void startingPositionIsBalanced() {
+        ChessBoard board = new ChessGame().getBoard();
+        assertEquals(PieceSquareTables.MAX_PHASE, board.getPhase());
+        assertEquals(0, Evaluator.evaluate(board, ChessGame.TeamColor.WHITE));
+        assertEquals(0, Evaluator.evaluate(board, ChessGame.TeamColor.BLACK));
+    }
+
+    @Test
+    void mirroredPositionsScoreTheSameForTheSideToMove() {
+        ChessBoard white = ChessGame.fromFen("r1bqkb1r/pppp1ppp/2n2n2/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 4 4").getBoard();
+        ChessBoard black = ChessGame.fromFen("rnbqk2r/pppp1ppp/5n2/2b1p3/4P3/2N2N2/PPPP1PPP/R1BQKB1R b KQkq - 4 4").getBoard();
+        assertEquals(Evaluator.evaluate(white, ChessGame.TeamColor.WHITE), Evaluator.evaluate(black, ChessGame.TeamColor.BLACK));
+    }
+
+    @Test
+    void materialAndPhaseShowInTheScore() {
+        ChessBoard board = ChessGame.fromFen("4k3/8/8/8/8/8/8/3QK3 w - - 0 1").getBoard();
+        assertEquals(4, board.getPhase());
+        assertTrue(Evaluator.evaluate(board, ChessGame.TeamColor.WHITE) > 900);
+        assertTrue(Evaluator.evaluate(board, ChessGame.TeamColor.BLACK) < -900);
+    }
+
+    @Test
+    void incrementalScoresMatchRecomputationDuringRandomPlay() {
+        Random random = new Random(5);
+        for (int gameNumber = 0; gameNumber < 20; gameNumber++) {
+            ChessBoard board = new ChessGame().getBoard();
+            ChessGame.TeamColor color = ChessGame.TeamColor.WHITE;
+            int lastMove = Move.NONE;
+            MoveList moves = new MoveList();
+            for (int ply = 0; ply < 200; ply++) {
+                assertSameScores(board);
+                moves.clear();
+                LegalMoveGenerator.generate(board, color, lastMove, moves);
+                if (moves.isEmpty()) {
+                    break;
+                }
+                // Try every move and take it back before playing one for real
+                for (int i = 0; i < moves.size(); i++) {
+                    int move = moves.get(i);
+                    board.doMove(Move.from(move), Move.to(move), Move.promotion(move));
+                    assertSameScores(board);
+                    board.undoMove();
+                }
+                lastMove = moves.get(random.nextInt(moves.size()));
+                board.doMove(Move.from(lastMove), Move.to(lastMove), Move.promotion(lastMove));
+                color = color == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+            }
+            assertSameScores(board.copy());
+            assertSameScores(new Gson().fromJson(new Gson().toJson(board), ChessBoard.class));
+        }
+    }
+
+    private static void assertSameScores(ChessBoard board) {
+        for (ChessGame.TeamColor side : ChessGame.TeamColor.values()) {
+            assertEquals(Evaluator.evaluateFromScratch(board, side), Evaluator.evaluate(board, side));
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package chess.movegen;
+
+import chess.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static chess.MoveTestUtilities.allValidMoves;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LegalMoveGeneratorTest {
+
+    @Test
+    void matchesMakeMoveFilteringDuringRandomGames() throws InvalidMoveException {
+        Random random = new Random(1234);
+        for (int gameNumber = 0; gameNumber < 40; gameNumber++) {
+            ChessGame game = new ChessGame();
+            ChessGame bitboard = new ChessGame();
+            bitboard.setMoveGenerationMode(ChessGame.MoveGenerationMode.BITBOARD);
+            for (int ply = 0; ply < 150; ply++) {
+                assertSameValidMoves(bitboard, game);
+                List<ChessMove> moves = allValidMoves(game, game.getTeamTurn());
+                if (moves.isEmpty()) {
+                    break;
+                }
+                ChessMove move = moves.get(random.nextInt(moves.size()));
+                game.makeMove(move);
+                bitboard.makeMove(move);
+            }
+        }
+    }
+
+    @Test
+    void matchesMakeMoveFilteringOnRandomBoards() {
+        Random random = new Random(99);
+        ChessPiece.PieceType[] types = ChessPiece.PieceType.values();
+        for (int boardNumber = 0; boardNumber < 1000; boardNumber++) {
+            ChessBoard board = new ChessBoard();
+            // Mostly one king per side, with the odd kingless or two-king board mixed in
+            if (boardNumber % 10 != 0) {
+                board.addPiece(new ChessPosition(1 + random.nextInt(8), 1 + random.nextInt(8)),
+                        new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+                board.addPiece(new ChessPosition(1 + random.nextInt(8), 1 + random.nextInt(8)),
+                        new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+            }
+            int pieces = 2 + random.nextInt(16);
+            for (int i = 0; i < pieces; i++) {
+                ChessGame.TeamColor color = random.nextBoolean() ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+                ChessPiece.PieceType type = types[random.nextInt(types.length)];
+                ChessPosition position = new ChessPosition(1 + random.nextInt(8), 1 + random.nextInt(8));
+                ChessPiece occupant = board.getPiece(position);
+                if (occupant == null || occupant.getPieceType() != ChessPiece.PieceType.KING) {
+                    board.addPiece(position, new ChessPiece(color, type));
+                }
+            }
+            ChessGame game = new ChessGame();
+            game.setBoard(board);
+            ChessGame bitboard = new ChessGame();
+            bitboard.setBoard(board);
+            bitboard.setMoveGenerationMode(ChessGame.MoveGenerationMode.BITBOARD);
+            assertSameValidMoves(bitboard, game);
+            for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+                assertEquals(bitboard.isInCheckmate(color), game.isInCheckmate(color));
+                assertEquals(bitboard.isInStalemate(color), game.isInStalemate(color));
+            }
+        }
+    }
+
+    @Test
+    void moveListMatchesValidMoves() throws InvalidMoveException {
+        Random random = new Random(77);
+        ChessGame game = new ChessGame();
+        MoveList buffer = new MoveList();
+        for (int ply = 0; ply < 200; ply++) {
+            buffer.clear();
+            ChessMove lastMove = game.getLastMove();
+            LegalMoveGenerator.generate(game.getBoard(), game.getTeamTurn(),
+                    lastMove == null ? Move.NONE : Move.encode(lastMove), buffer);
+            List<ChessMove> expected = allValidMoves(game, game.getTeamTurn());
+            assertEquals(new HashSet<>(expected), new HashSet<>(buffer.toChessMoves()));
+            assertEquals(expected.size(), buffer.size());
+            for (int i = 0; i < buffer.size(); i++) {
+                int move = buffer.get(i);
+                boolean occupied = game.getBoard().getPiece(Move.to(move)) != null;
+                assertEquals(occupied || Move.hasFlag(move, Move.EN_PASSANT), Move.isCapture(move));
+            }
+            if (expected.isEmpty()) {
+                break;
+            }
+            game.makeMove(expected.get(random.nextInt(expected.size())));
+        }
+    }
+
+    @Test
+    void pinnedPieceOnlyMovesAlongPin() {
+        ChessBoard board = new ChessBoard();
+        board.addPiece(new ChessPosition(1, 5), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        board.addPiece(new ChessPosition(3, 5), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
+        board.addPiece(new ChessPosition(8, 5), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN));
+        board.addPiece(new ChessPosition(8, 1), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+
+        var moves = LegalMoveGenerator.legalMoves(board, new ChessPosition(3, 5), null);
+        assertEquals(6, moves.size());
+        for (ChessMove move : moves) {
+            assertEquals(5, move.getEndPosition().getCol());
+        }
+    }
+
+    private static void assertSameValidMoves(ChessGame expected, ChessGame actual) {
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            List<ChessMove> expectedMoves = allValidMoves(expected, color);
+            List<ChessMove> actualMoves = allValidMoves(actual, color);
+            assertEquals(new HashSet<>(expectedMoves), new HashSet<>(actualMoves));
+            assertEquals(expectedMoves.size(), actualMoves.size());
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package chess.movegen;
+
+import chess.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static chess.MoveTestUtilities.allValidMoves;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoveGeneratorTest {
+
+    @Test
+    void matchesPieceMovesDuringRandomGames() throws InvalidMoveException {
+        Random random = new Random(240);
+        for (int gameNumber = 0; gameNumber < 40; gameNumber++) {
+            ChessGame game = new ChessGame();
+            for (int ply = 0; ply < 120; ply++) {
+                assertSameMoves(game.getBoard(), game.getLastMove());
+                List<ChessMove> moves = allValidMoves(game);
+                if (moves.isEmpty()) {
+                    break;
+                }
+                game.makeMove(moves.get(random.nextInt(moves.size())));
+            }
+        }
+    }
+
+    @Test
+    void matchesPieceMovesOnRandomBoards() {
+        Random random = new Random(42);
+        ChessPiece.PieceType[] types = ChessPiece.PieceType.values();
+        for (int boardNumber = 0; boardNumber < 500; boardNumber++) {
+            ChessBoard board = new ChessBoard();
+            int pieces = 4 + random.nextInt(20);
+            for (int i = 0; i < pieces; i++) {
+                ChessGame.TeamColor color = random.nextBoolean() ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+                ChessPiece piece = new ChessPiece(color, types[random.nextInt(types.length)]);
+                piece.setHasMoved(random.nextInt(4) == 0);
+                board.addPiece(new ChessPosition(1 + random.nextInt(8), 1 + random.nextInt(8)), piece);
+            }
+            assertSameMoves(board, null);
+        }
+    }
+
+    @Test
+    void validMovesAgreeAcrossModes() throws InvalidMoveException {
+        Random random = new Random(7);
+        ChessGame game = new ChessGame();
+        ChessGame reference = new ChessGame();
+        reference.setMoveGenerationMode(ChessGame.MoveGenerationMode.REFERENCE);
+        for (int ply = 0; ply < 150; ply++) {
+            List<ChessMove> moves = allValidMoves(game);
+            assertEquals(new HashSet<>(allValidMoves(reference)), new HashSet<>(moves));
+            if (moves.isEmpty()) {
+                break;
+            }
+            ChessMove move = moves.get(random.nextInt(moves.size()));
+            game.makeMove(move);
+            reference.makeMove(move);
+        }
+    }
+
+    private static void assertSameMoves(ChessBoard board, ChessMove lastMove) {
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPosition position = new ChessPosition(row, col);
+                ChessPiece piece = board.getPiece(position);
+                if (piece != null) {
+                    var expected = piece.pieceMoves(board, position, lastMove);
+                    var actual = MoveGenerator.pieceMoves(board, position, lastMove);
+                    assertEquals(new HashSet<>(expected), new HashSet<>(actual), "Moves differ for " + piece + " at " + position);
+                    assertEquals(expected.size(), actual.size(), "Duplicate moves for " + piece + " at " + position);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package chess.tablebase;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.engine.Engine;
+import chess.engine.SearchLimits;
+import chess.engine.SearchResult;
+import chess.movegen.LegalMoveGenerator;
+import chess.movegen.Move;
+import chess.movegen.MoveList;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import shared.ChessAdapters;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TablebaseTest {
+    @TempDir
+    static Path directory;
+
+    private static Tablebases tablebases;
+
+    @BeforeAll
+    static void generate() throws IOException {
+        TablebaseGenerator.generateAll(directory);
+        tablebases = Tablebases.open(directory);
+    }
+
+    @Test
+    void knownResults() {
+        assertEquals(3, tablebases.size());
+        assertProbe("k7/8/1K6/8/8/8/8/6Q1 w - - 0 1", TablebaseResult.Outcome.WIN, 1);
+        assertProbe("k6Q/8/1K6/8/8/8/8/8 b - - 0 1", TablebaseResult.Outcome.LOSS, 0);
+        assertProbe("k7/2Q5/1K6/8/8/8/8/8 b - - 0 1", TablebaseResult.Outcome.DRAW, 0);
+        // A rook pawn with the defending king in the corner is a draw
+        assertProbe("k7/8/8/8/8/8/P7/K7 w - - 0 1", TablebaseResult.Outcome.DRAW, 0);
+        // The king on the sixth rank ahead of its pawn wins whoever is to move
+        assertProbe("4k3/8/4K3/4P3/8/8/8/8 w - - 0 1", TablebaseResult.Outcome.WIN, 21);
+        assertProbe("4k3/8/4K3/4P3/8/8/8/8 b - - 0 1", TablebaseResult.Outcome.LOSS, 24);
+        assertProbe("8/8/8/8/4p3/4k3/8/4K3 b - - 0 1", TablebaseResult.Outcome.WIN, 21);
+        assertNull(probe("4k3/8/8/8/8/8/8/4K2R w K - 0 1"));
+        assertNull(probe("4k3/8/8/8/8/8/8/2B1K3 w - - 0 1"));
+    }
+
+    @Test
+    void longestMates() throws IOException {
+        assertEquals(19, longestWhiteWin(Tablebase.Material.KQK));
+        assertEquals(31, longestWhiteWin(Tablebase.Material.KRK));
+    }
+
+    @Test
+    void agreesWithMoveGenerator() {
+        Random random = new Random(42);
+        for (Tablebase.Material material : Tablebase.Material.values()) {
+            int checked = 0;
+            while (checked < 300) {
+                ChessBoard board = randomPosition(material, random);
+                ChessGame.TeamColor color = random.nextBoolean() ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+                MoveList moves = new MoveList();
+                LegalMoveGenerator.generate(board, color, Move.NONE, moves);
+                TablebaseResult result = tablebases.probe(board, color);
+                if (moves.isEmpty() || isInCheck(board, opponent(color))) {
+                    continue;
+                }
+                int bestWin = Integer.MAX_VALUE;
+                int longestLoss = -1;
+                boolean escapes = false;
+                for (int i = 0; i < moves.size(); i++) {
+                    int move = moves.get(i);
+                    board.doMove(Move.from(move), Move.to(move), Move.promotion(move));
+                    TablebaseResult reply = tablebases.probe(board, opponent(color));
+                    board.undoMove();
+                    if (reply != null && reply.outcome() == TablebaseResult.Outcome.LOSS) {
+                        bestWin = Math.min(bestWin, reply.pliesToMate() + 1);
+                    } else if (reply != null && reply.outcome() == TablebaseResult.Outcome.WIN) {
+                        longestLoss = Math.max(longestLoss, reply.pliesToMate() + 1);
+                    } else {
+                        escapes = true;
+                    }
+                }
+                switch (result.outcome()) {
+                    case WIN -> assertEquals(bestWin, result.pliesToMate());
+                    case LOSS -> {
+                        assertFalse(escapes);
+                        assertEquals(longestLoss, result.pliesToMate());
+                    }
+                    case DRAW -> assertTrue(bestWin == Integer.MAX_VALUE && (escapes || longestLoss < 0));
+                }
+                checked++;
+            }
+        }
+    }
+
+    @Test
+    void drawnEndingsFinishTheGameAndTheEngineMatesQuickly() {
+        Gson gson = new GsonBuilder()
+                .registerTypeAdapter(ChessGame.class, new ChessAdapters.ChessGameAdapter())
+                .registerTypeAdapter(ChessBoard.class, new ChessAdapters.ChessBoardAdapter())
+                .registerTypeAdapter(ChessPiece.class, new ChessAdapters.ChessPieceAdapter())
+                .registerTypeAdapter(ChessPosition.class, new ChessAdapters.ChessPositionAdapter())
+                .registerTypeAdapter(ChessMove.class, new ChessAdapters.ChessMoveAdapter())
+                .create();
+        String drawnJson;
+        Tablebases.install(tablebases);
+        try {
+            ChessGame drawn = ChessGame.fromFen("k7/8/8/8/8/8/P7/K7 w - - 0 1");
+            assertEquals(ChessGame.GameStatus.TABLEBASE_DRAW, drawn.getGameStatus());
+            drawnJson = gson.toJson(drawn);
+            ChessGame won = ChessGame.fromFen("8/8/8/4k3/8/8/8/R3K3 w - - 0 1");
+            assertEquals(ChessGame.GameStatus.ONGOING, won.getGameStatus());
+
+            SearchResult result = new Engine().search(won, SearchLimits.ofDepth(3));
+            assertTrue(result.isMate());
+            assertEquals(1, result.depth());
+        } finally {
+            Tablebases.install(null);
+        }
+        assertEquals(ChessGame.GameStatus.ONGOING, ChessGame.fromFen("k7/8/8/8/8/8/P7/K7 w - - 0 1").getGameStatus());
+        // Without tablebases the draw is not known, but it must not look like a resignation
+        assertEquals(ChessGame.GameStatus.ONGOING, gson.fromJson(drawnJson, ChessGame.class).getGameStatus());
+    }
+
+    @Test
+    void rejectsOtherFiles() throws IOException {
+        Path file = directory.resolve("other.tb");
+        Files.write(file, new byte[64]);
+        assertThrows(IOException.class, () -> Tablebase.open(file));
+    }
+
+    private static void assertProbe(String fen, TablebaseResult.Outcome outcome, int pliesToMate) {
+        assertEquals(new TablebaseResult(outcome, pliesToMate), probe(fen), fen);
+    }
+
+    private static TablebaseResult probe(String fen) {
+        ChessGame game = ChessGame.fromFen(fen);
+        return tablebases.probe(game.getBoard(), game.getTeamTurn());
+    }
+
+    private static int longestWhiteWin(Tablebase.Material material) throws IOException {
+        Tablebase table = Tablebase.open(directory.resolve(material.fileName()));
+        int longest = 0;
+        for (int index = 0; index < Tablebase.SIZE / 2; index++) {
+            longest = Math.max(longest, table.get(index));
+        }
+        return longest - 1;
+    }
+
+    // Kings that are not touching and a piece elsewhere; pawns stay off the back ranks
+    private static ChessBoard randomPosition(Tablebase.Material material, Random random) {
+        while (true) {
+            int strongKing = random.nextInt(64);
+            int weakKing = random.nextInt(64);
+            int piece = material == Tablebase.Material.KPK ? 8 + random.nextInt(48) : random.nextInt(64);
+            if (strongKing == weakKing || piece == strongKing || piece == weakKing
+                    || Math.abs(strongKing / 8 - weakKing / 8) <= 1 && Math.abs(strongKing % 8 - weakKing % 8) <= 1) {
+                continue;
+            }
+            ChessBoard board = new ChessBoard();
+            place(board, strongKing, ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING);
+            place(board, weakKing, ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING);
+            place(board, piece, ChessGame.TeamColor.WHITE, material.getPiece());
+            return board;
+        }
+    }
+
+    private static void place(ChessBoard board, int square, ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        ChessPiece piece = new ChessPiece(color, type);
+        piece.setHasMoved(true);
+        board.addPiece(new ChessPosition(square / 8 + 1, square % 8 + 1), piece);
+    }
+
+    private static boolean isInCheck(ChessBoard board, ChessGame.TeamColor color) {
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        return game.isInCheck(color);
+    }
+
+    private static ChessGame.TeamColor opponent(ChessGame.TeamColor color) {
+        return color == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+    }
+}